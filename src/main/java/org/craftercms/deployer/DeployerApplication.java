@@ -4,11 +4,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.github.jknack.handlebars.Handlebars;
+import com.github.jknack.handlebars.cache.HighConcurrencyTemplateCache;
 import com.github.jknack.handlebars.io.CompositeTemplateLoader;
 import com.github.jknack.handlebars.springmvc.SpringTemplateLoader;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 
 import freemarker.template.TemplateException;
 import org.apache.commons.lang3.StringUtils;
@@ -21,6 +24,7 @@ import org.craftercms.deployer.api.TargetService;
 import org.craftercms.deployer.api.exceptions.DeployerException;
 import org.craftercms.deployer.impl.ProcessedCommitsStore;
 import org.craftercms.deployer.impl.ProcessedCommitsStoreImpl;
+import org.craftercms.deployer.utils.concurrent.PriorityTaskComparator;
 import org.craftercms.deployer.utils.handlebars.ListHelper;
 import org.craftercms.deployer.utils.handlebars.MissingValueHelper;
 import org.slf4j.Logger;
@@ -33,11 +37,13 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ImportResource;
 import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
@@ -67,8 +73,18 @@ public class DeployerApplication extends WebMvcConfigurerAdapter implements Sche
 	private boolean scheduledTargetScanEnabled;
 	@Value("${deployer.main.targets.scan.scheduling.cron}")
 	private String scheduledTargetScanCron;
+	@Value("${deployer.main.targets.scan.watch.enabled}")
+	private boolean targetConfigWatchEnabled;
+	@Value("${deployer.main.targets.scan.watch.fullScanCron}")
+	private String targetConfigWatchFullScanCron;
 	@Value("${deployer.main.taskScheduler.poolSize}")
 	private int taskSchedulerPoolSize;
+	@Value("${deployer.main.deploymentExecutor.poolSize}")
+	private int deploymentExecutorPoolSize;
+	@Value("${deployer.main.targetLoadingExecutor.poolSize}")
+	private int targetLoadingExecutorPoolSize;
+	@Value("${deployer.main.deployments.events.poolSize}")
+	private int deploymentEventsExecutorPoolSize;
 	@Value("${deployer.main.targets.config.templates.location}")
 	private String targetConfigTemplatesLocation;
 	@Value("${deployer.main.targets.config.templates.overrideLocation}")
@@ -137,6 +153,53 @@ public class DeployerApplication extends WebMvcConfigurerAdapter implements Sche
 		return taskScheduler;
 	}
 
+	@Bean(destroyMethod="shutdown")
+	public ThreadPoolTaskExecutor deploymentExecutor() {
+		ThreadPoolTaskExecutor deploymentExecutor = new ThreadPoolTaskExecutor() {
+
+			@Override
+			protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
+				// Order the deployments waiting for a thread by priority, like each target does with its pending deployments
+				return new PriorityBlockingQueue<>(11, new PriorityTaskComparator());
+			}
+
+		};
+		deploymentExecutor.setCorePoolSize(deploymentExecutorPoolSize);
+		deploymentExecutor.setMaxPoolSize(deploymentExecutorPoolSize);
+		deploymentExecutor.setThreadNamePrefix("deployment-");
+
+		return deploymentExecutor;
+	}
+
+	@Bean(destroyMethod="shutdown")
+	public ThreadPoolTaskExecutor targetLoadingExecutor() {
+		ThreadPoolTaskExecutor targetLoadingExecutor = new ThreadPoolTaskExecutor();
+		targetLoadingExecutor.setCorePoolSize(targetLoadingExecutorPoolSize);
+		targetLoadingExecutor.setMaxPoolSize(targetLoadingExecutorPoolSize);
+		targetLoadingExecutor.setThreadNamePrefix("target-loading-");
+
+		return targetLoadingExecutor;
+	}
+
+	@Bean(destroyMethod="shutdown")
+	public ThreadPoolTaskExecutor deploymentEventsExecutor() {
+		ThreadPoolTaskExecutor deploymentEventsExecutor = new ThreadPoolTaskExecutor();
+		deploymentEventsExecutor.setCorePoolSize(deploymentEventsExecutorPoolSize);
+		deploymentEventsExecutor.setMaxPoolSize(deploymentEventsExecutorPoolSize);
+		deploymentEventsExecutor.setThreadNamePrefix("deployment-events-");
+
+		return deploymentEventsExecutor;
+	}
+
+	@Bean
+	public SimpleAsyncTaskExecutor targetDrainExecutor() {
+		// Drains are rare but can take as long as the current deployment, so each one gets its own thread
+		SimpleAsyncTaskExecutor targetDrainExecutor = new SimpleAsyncTaskExecutor("target-drain-");
+		targetDrainExecutor.setDaemon(true);
+
+		return targetDrainExecutor;
+	}
+
 	@Bean
 	public Handlebars targetConfigTemplateEngine(ResourceLoader resourceLoader) throws IOException, TemplateException {
 		SpringTemplateLoader templateOverridesLoader = new SpringTemplateLoader(resourceLoader);
@@ -149,7 +212,8 @@ public class DeployerApplication extends WebMvcConfigurerAdapter implements Sche
 
 		CompositeTemplateLoader compositeTemplateLoader = new CompositeTemplateLoader(templateOverridesLoader, templateLoader);
 
-		Handlebars handlebars = new Handlebars(compositeTemplateLoader);
+		// Cache the compiled templates, recompiling them only when their source changes
+		Handlebars handlebars = new Handlebars(compositeTemplateLoader).with(new HighConcurrencyTemplateCache().setReload(true));
 		handlebars.prettyPrint(true);
 
 		handlebars.registerHelper(ListHelper.NAME, ListHelper.INSTANCE);
@@ -170,8 +234,11 @@ public class DeployerApplication extends WebMvcConfigurerAdapter implements Sche
 	}
 
 	private void configureTargetScanTask(ScheduledTaskRegistrar taskRegistrar) {
-		if (scheduledTargetScanEnabled && StringUtils.isNotEmpty(scheduledTargetScanCron)) {
-			logger.info("Target scan scheduled with cron {}", scheduledTargetScanCron);
+		// When the target config folder is watched, the scheduled scan is only a safety net, so it can run less often
+		String cron = targetConfigWatchEnabled ? targetConfigWatchFullScanCron : scheduledTargetScanCron;
+
+		if (scheduledTargetScanEnabled && StringUtils.isNotEmpty(cron)) {
+			logger.info("Target scan scheduled with cron {}", cron);
 
 			Runnable task = () -> {
 
@@ -183,7 +250,7 @@ public class DeployerApplication extends WebMvcConfigurerAdapter implements Sche
 
 			};
 
-			taskRegistrar.addCronTask(task, scheduledTargetScanCron);
+			taskRegistrar.addCronTask(task, cron);
 		}
 	}
 
@@ -24,42 +24,71 @@ import com.fasterxml.jackson.annotation.JsonUnwrapped;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
- * Represents a deployment. Contains every important status information of a particular deployment execution.
+ * Represents a deployment. Contains every important status information of a particular deployment execution. The progress of the
+ * deployment can be followed by adding a {@link DeploymentListener}.
  *
  * @author avasquez
  */
-@JsonPropertyOrder({ "status", "running", "duration", "start", "end", "created_files",
+@JsonPropertyOrder({ "id", "status", "no_op", "priority", "cancelled", "running", "duration", "start", "end", "created_files",
     "updated_files", "deleted_files" })
 public class Deployment {
 
+    private static final Logger logger = LoggerFactory.getLogger(Deployment.class);
+
+    protected String id;
     protected Target target;
+    protected Priority priority;
     protected volatile ZonedDateTime start;
     protected volatile ZonedDateTime end;
     protected volatile Status status;
+    protected volatile boolean cancelled;
+    protected volatile boolean noOp;
     protected volatile ChangeSet changeSet;
     protected List<ProcessorExecution> processorExecutions;
     protected Map<String, Object> params;
     protected Lock lock;
+    protected CompletableFuture<Deployment> doneFuture;
+    protected List<DeploymentListener> listeners;
 
     public Deployment(Target target) {
-        this.target = target;
-        this.processorExecutions = new ArrayList<>();
-        this.params = new ConcurrentHashMap<>();
-        this.lock = new ReentrantLock();
+        this(target, Collections.emptyMap(), Priority.MANUAL);
     }
 
     public Deployment(Target target, Map<String, Object> params) {
+        this(target, params, Priority.MANUAL);
+    }
+
+    public Deployment(Target target, Map<String, Object> params, Priority priority) {
+        this.id = UUID.randomUUID().toString();
         this.target = target;
+        this.priority = priority;
         this.processorExecutions = new ArrayList<>();
         this.params = new ConcurrentHashMap<>(params);
         this.lock = new ReentrantLock();
+        this.doneFuture = new CompletableFuture<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Returns the ID of the deployment.
+     */
+    @JsonProperty("id")
+    public String getId() {
+        return id;
     }
 
     /**
@@ -70,6 +99,14 @@ public class Deployment {
         return target;
     }
 
+    /**
+     * Returns the priority class of the deployment.
+     */
+    @JsonProperty("priority")
+    public Priority getPriority() {
+        return priority;
+    }
+
     /**
      * Returns the start date of the deployment.
      */
@@ -114,6 +151,39 @@ public class Deployment {
         return status;
     }
 
+    /**
+     * Returns true if the deployment ended early because there was nothing to deploy (see {@link #endAsNoOp()}).
+     */
+    @JsonProperty("no_op")
+    public boolean isNoOp() {
+        return noOp;
+    }
+
+    /**
+     * Returns true if the cancellation of the deployment was requested, either explicitly or because the deployment timed out.
+     */
+    @JsonProperty("cancelled")
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Marks the deployment as cancelled. This doesn't stop the deployment by itself: the pipeline is responsible of ending it,
+     * and processors should check {@link #isCancelled()} during long operations.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns a future that's completed when the deployment is done, after all of its processors have been executed. The future
+     * is cancelled if the deployment is discarded before being executed.
+     */
+    @JsonIgnore
+    public CompletableFuture<Deployment> getDoneFuture() {
+        return doneFuture;
+    }
+
     /**
      * Returns the change set of the deployment.
      */
@@ -143,7 +213,10 @@ public class Deployment {
     public void start() {
         if (!isRunning()) {
             this.end = null;
+            this.noOp = false;
             this.start = ZonedDateTime.now();
+
+            fireEvent(Event.STARTED, null);
         }
     }
 
@@ -154,6 +227,21 @@ public class Deployment {
         if (isRunning()) {
             this.end = ZonedDateTime.now();
             this.status = status;
+
+            fireEvent(Event.ENDED, null);
+        }
+    }
+
+    /**
+     * Ends the deployment successfully, flagging it as a no-op: a processor found that there was nothing to deploy, so the rest
+     * of the pipeline is skipped.
+     */
+    public void endAsNoOp() {
+        if (isRunning()) {
+            // Set before ending, so that the listeners of the end event can see it
+            this.noOp = true;
+
+            end(Status.SUCCESS);
         }
     }
 
@@ -180,6 +268,43 @@ public class Deployment {
         } finally {
             lock.unlock();
         }
+
+        fireEvent(Event.PROCESSOR_STARTED, status);
+    }
+
+    /**
+     * Ends a {@link ProcessorExecution} of the deployment with the specified status.
+     */
+    public void endProcessorExecution(ProcessorExecution execution, Status status) {
+        if (execution.isRunning()) {
+            execution.endExecution(status);
+
+            fireEvent(Event.PROCESSOR_ENDED, execution);
+        }
+    }
+
+    /**
+     * Adds a listener that will be notified of the progress of the deployment.
+     */
+    public void addListener(DeploymentListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener previously added through {@link #addListener(DeploymentListener)}.
+     */
+    public void removeListener(DeploymentListener listener) {
+        listeners.remove(listener);
+    }
+
+    protected void fireEvent(Event event, ProcessorExecution execution) {
+        for (DeploymentListener listener : listeners) {
+            try {
+                listener.onDeploymentEvent(event, this, execution);
+            } catch (Exception e) {
+                logger.warn("Deployment listener " + listener + " failed on event " + event, e);
+            }
+        }
     }
 
 
@@ -208,15 +333,33 @@ public class Deployment {
         SUCCESS, FAILURE
     }
 
+    /**
+     * The events of a deployment that are sent to {@link DeploymentListener}s.
+     */
+    public enum Event {
+        STARTED, PROCESSOR_STARTED, PROCESSOR_ENDED, ENDED
+    }
+
+    /**
+     * The priority classes of deployments, from highest to lowest.
+     */
+    public enum Priority {
+        MANUAL, PUSH, SCHEDULED, FULL_REPROCESS
+    }
+
     @Override
     public String toString() {
         return "Deployment{" +
-               "targetId='" + target.getId() + "'" +
+               "id='" + id + "'" +
+               ", targetId='" + target.getId() + "'" +
+               ", priority=" + priority +
                ", start=" + start +
                ", end=" + end +
                ", running=" + isRunning() +
                ", duration=" + getDuration() +
                ", status=" + status +
+               ", noOp=" + noOp +
+               ", cancelled=" + cancelled +
                ", changeSet=" + changeSet +
                ", processorExecutions=" + processorExecutions +
                ", params=" + params + '}';
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.api;
+
+/**
+ * Listener that's notified of the progress of a {@link Deployment}.
+ *
+ * @author avasquez
+ */
+public interface DeploymentListener {
+
+    /**
+     * Called when an event of the deployment happens. Listeners are called in the thread that executes the deployment, so
+     * they should return quickly.
+     *
+     * @param event         the type of event
+     * @param deployment    the deployment
+     * @param execution     the processor execution, for {@link Deployment.Event#PROCESSOR_STARTED} and
+     *                      {@link Deployment.Event#PROCESSOR_ENDED} events, null otherwise
+     */
+    void onDeploymentEvent(Deployment.Event event, Deployment deployment, ProcessorExecution execution);
+
+}
@@ -47,4 +47,14 @@ public interface DeploymentPipeline {
      */
     void execute(Deployment deployment);
 
+    /**
+     * Cancels the specified deployment if it's currently being executed by the pipeline. The processor currently running is
+     * cancelled, and the remaining processors of the main deployment phase are skipped.
+     *
+     * @param deployment    the deployment info
+     *
+     * @return true if the deployment was being executed, false otherwise
+     */
+    boolean cancel(Deployment deployment);
+
 }
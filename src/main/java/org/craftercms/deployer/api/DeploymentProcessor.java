@@ -51,4 +51,22 @@ public interface DeploymentProcessor {
      */
     void execute(Deployment deployment);
 
+    /**
+     * Returns the max time, in milliseconds, that an execution of the processor can take, or 0 if there's no limit. When the
+     * limit is exceeded, the execution is cancelled. By default there's no limit.
+     */
+    default long getTimeout() {
+        return 0;
+    }
+
+    /**
+     * Cancels the current execution of the processor, because it timed out or because the deployment was cancelled. This method
+     * is called from a different thread than the one executing the processor, which is also interrupted. Processors that block
+     * on operations that don't respond to interruption should abort them here. By default it does nothing.
+     *
+     * @param deployment    the current deployment info
+     */
+    default void cancel(Deployment deployment) {
+    }
+
 }
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
 
+import org.craftercms.deployer.api.exceptions.DeploymentQueueFullException;
 import org.craftercms.deployer.api.exceptions.DeploymentServiceException;
 import org.craftercms.deployer.api.exceptions.TargetNotFoundException;
 
@@ -36,11 +37,30 @@ public interface DeploymentService {
      * @param waitTillDone  if the method should wait till all deployments are done or return immediately
      * @param params        additional parameters that can be used by the deployment processors
      *
-     * @return  the list of deployment info for each target
+     * @return  the result for each target, with the deployment info or the reason why the deployment was rejected
      *
      * @throws DeploymentServiceException if there was an error while executing the deployments
      */
-    List<Deployment> deployAllTargets(boolean waitTillDone, Map<String, Object> params) throws DeploymentServiceException;
+    List<TargetDeploymentResult> deployAllTargets(boolean waitTillDone,
+                                                  Map<String, Object> params) throws DeploymentServiceException;
+
+    /**
+     * Deploys all targets that match the specified environment and site name pattern. The deployments of the different targets
+     * run in parallel, limited only by the max number of deployments that can run at the same time across all targets. The
+     * deployment of a target whose deployment queue is full is rejected, without affecting the other targets.
+     *
+     * @param env               the environment of the targets to deploy (optional, all environments if not specified)
+     * @param siteNamePattern   the regex pattern that the site names of the targets to deploy should match (optional, all
+     *                          sites if not specified)
+     * @param waitTillDone      if the method should wait till all deployments are done or return immediately
+     * @param params            additional parameters that can be used by the deployment processors
+     *
+     * @return  the result for each matching target, with the deployment info or the reason why the deployment was rejected
+     *
+     * @throws DeploymentServiceException if there was an error while executing the deployments
+     */
+    List<TargetDeploymentResult> deployAllTargets(String env, String siteNamePattern, boolean waitTillDone,
+                                                  Map<String, Object> params) throws DeploymentServiceException;
 
     /**
      * Deploys a single target
@@ -52,9 +72,29 @@ public interface DeploymentService {
      *
      * @return the deployment info
      *
+     * @throws DeploymentQueueFullException if the target can't accept any more pending deployments
      * @throws DeploymentServiceException if there was an error while executing the deployments
      */
     Deployment deployTarget(String env, String siteName, boolean waitTillDone,
-                            Map<String, Object> params) throws TargetNotFoundException, DeploymentServiceException;
+                            Map<String, Object> params) throws TargetNotFoundException, DeploymentQueueFullException,
+                                                               DeploymentServiceException;
+
+    /**
+     * Deploys all targets that pull from the specified remote repository and branch, normally as a response to a push
+     * notification from the repository. Deployments are debounced: they start after a short delay, and any other push for the
+     * same target received during that delay restarts the delay, so a burst of pushes results in a single deployment.
+     *
+     * @param repoUrl   the URL of the remote repository
+     * @param branch    the branch that was pushed
+     * @param commitId  the ID of the new commit of the branch (optional). Targets that already processed this commit are not
+     *                  deployed
+     * @param params    additional parameters that can be used by the deployment processors
+     *
+     * @return the targets that will be deployed
+     *
+     * @throws DeploymentServiceException if there was an error while scheduling the deployments
+     */
+    List<Target> deployTargetsOnPush(String repoUrl, String branch, String commitId,
+                                     Map<String, Object> params) throws DeploymentServiceException;
 
 }
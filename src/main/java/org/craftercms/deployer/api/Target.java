@@ -25,7 +25,9 @@ import java.util.Collection;
 import java.util.Map;
 
 import org.apache.commons.configuration2.Configuration;
+import org.craftercms.deployer.api.exceptions.DeploymentQueueFullException;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
 
 /**
  * Represents a deployment target.
@@ -71,22 +73,91 @@ public interface Target {
     Configuration getConfiguration();
 
     /**
-     * Deploys the target.
+     * Returns true if the target is active, that is, if its application context and deployment pipeline are loaded. Targets
+     * that are activated lazily are only active from their first deployment until they're deactivated for being idle.
+     */
+    @JsonProperty("active")
+    boolean isActive();
+
+    /**
+     * Returns the growth (in bytes) of the used heap of the whole process while the target was last activated. Other threads
+     * can allocate memory during the activation, so this is only a rough upper bound of what the target uses, and it's kept
+     * after the target is deactivated. Returns null if the target has never been activated.
+     */
+    @JsonProperty("last_activation_process_heap_delta")
+    Long getLastActivationHeapDelta();
+
+    /**
+     * Returns the number of times the local Git repository of the target has been opened by its processors since the target was
+     * activated. Returns null if the target is not active or its processors don't keep the repository open between
+     * deployments.
+     */
+    @JsonProperty("git_repository_opens")
+    Long getGitRepositoryOpenCount();
+
+    /**
+     * Returns the number of times the processors of the target have reused the already open local Git repository, instead of
+     * opening it again, since the target was activated. Returns null if the target is not active or its processors don't keep
+     * the repository open between deployments.
+     */
+    @JsonProperty("git_repository_reuses")
+    Long getGitRepositoryReuseCount();
+
+    /**
+     * Deploys the target, with the {@link Deployment.Priority#MANUAL} priority.
      *
      * @param waitTillDone  if the method should wait till the deployment is done or return immediately
      * @param params        miscellaneous parameters that can be used by the processors.
      *
      * @return the deployment info
+     *
+     * @throws DeploymentQueueFullException if the target can't accept any more pending deployments
      */
-    Deployment deploy(boolean waitTillDone, Map<String, Object> params);
+    Deployment deploy(boolean waitTillDone, Map<String, Object> params) throws DeploymentQueueFullException;
+
+    /**
+     * Deploys the target with the specified priority class. Deployments with a higher priority are run before the pending
+     * deployments with a lower priority, unless the lower priority deployments have been waiting for too long. Deployments that
+     * reprocess all files always have the {@link Deployment.Priority#FULL_REPROCESS} priority.
+     *
+     * @param priority      the priority class of the deployment
+     * @param waitTillDone  if the method should wait till the deployment is done or return immediately
+     * @param params        miscellaneous parameters that can be used by the processors.
+     *
+     * @return the deployment info
+     *
+     * @throws DeploymentQueueFullException if the target can't accept any more pending deployments
+     */
+    Deployment deploy(Deployment.Priority priority, boolean waitTillDone,
+                      Map<String, Object> params) throws DeploymentQueueFullException;
 
     /**
      * Schedules deployment of the target.
      *
-     * @param scheduler         the scheduler to use
-     * @param cronExpression    the cron expression
+     * @param scheduler the scheduler to use
+     * @param trigger   the trigger that determines when the deployments are executed (normally based on a cron expression)
+     */
+    void scheduleDeployment(TaskScheduler scheduler, Trigger trigger);
+
+    /**
+     * Returns the current interval between scheduled deployments, in milliseconds, when the interval adapts to how often changes
+     * are found. Returns null if deployments are not scheduled with an adaptive interval.
+     */
+    @JsonProperty("scheduled_deployment_interval")
+    Long getScheduledDeploymentInterval();
+
+    /**
+     * Returns the number of deployment requests that have been rejected because the deployment queue was full.
+     */
+    @JsonProperty("rejected_deployments")
+    long getRejectedDeploymentCount();
+
+    /**
+     * Returns the number of pending deployments that have been dropped to make room for new deployments when the deployment
+     * queue was full.
      */
-    void scheduleDeployment(TaskScheduler scheduler, String cronExpression);
+    @JsonProperty("dropped_deployments")
+    long getDroppedDeploymentCount();
 
     /**
      * Returns the pending deployments.
@@ -100,6 +171,24 @@ public interface Target {
     @JsonIgnore
     Deployment getCurrentDeployment();
 
+    /**
+     * Cancels the current deployment. The cancellation is cooperative: the processor currently running is cancelled, and the
+     * deployment ends (with failure) as soon as the processor returns.
+     *
+     * @return the deployment that was cancelled, or null if there was no deployment running
+     */
+    Deployment cancelCurrentDeployment();
+
+    /**
+     * Returns the deployment with the specified ID, if it's pending, current or one of the last completed deployments.
+     *
+     * @param id the ID of the deployment
+     *
+     * @return the deployment, or null if not found
+     */
+    @JsonIgnore
+    Deployment getDeployment(String id);
+
     /**
      * Returns all deployments (pending and current).
      */
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.api;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Request to create a target, used when creating targets in bulk.
+ *
+ * @author avasquez
+ */
+public class TargetCreationRequest {
+
+    protected String env;
+    protected String siteName;
+    protected boolean replace;
+    protected String templateName;
+    protected Map<String, Object> templateParams;
+
+    /**
+     * Creates a new request.
+     *
+     * @param env               the target's environment (e.g. dev)
+     * @param siteName          the target's site name (e.g. mysite)
+     * @param replace           indicates that if there's a target with the same name, the target config should be replaced.
+     * @param templateName      the name of the template used to create the target configuration (can be null).
+     * @param templateParams    the parameters that the template needs.
+     */
+    public TargetCreationRequest(String env, String siteName, boolean replace, String templateName,
+                                 Map<String, Object> templateParams) {
+        this.env = env;
+        this.siteName = siteName;
+        this.replace = replace;
+        this.templateName = templateName;
+        this.templateParams = templateParams != null ? templateParams : Collections.emptyMap();
+    }
+
+    public String getEnv() {
+        return env;
+    }
+
+    public String getSiteName() {
+        return siteName;
+    }
+
+    public boolean isReplace() {
+        return replace;
+    }
+
+    public String getTemplateName() {
+        return templateName;
+    }
+
+    public Map<String, Object> getTemplateParams() {
+        return templateParams;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Result of requesting the deployment of a single target as part of the deployment of several targets: either the deployment
+ * that was queued, or the reason why the deployment was rejected (like the deployment queue of the target being full).
+ *
+ * @author avasquez
+ */
+public class TargetDeploymentResult extends TargetOperationResult {
+
+    protected String targetId;
+    protected Deployment deployment;
+
+    public static TargetDeploymentResult accepted(Target target, Deployment deployment) {
+        return new TargetDeploymentResult(target, deployment, null);
+    }
+
+    public static TargetDeploymentResult rejected(Target target, String error) {
+        return new TargetDeploymentResult(target, null, error);
+    }
+
+    public TargetDeploymentResult(Target target, Deployment deployment, String error) {
+        super(target.getEnv(), target.getSiteName(), deployment != null, error);
+
+        this.targetId = target.getId();
+        this.deployment = deployment;
+    }
+
+    /**
+     * Returns the ID of the target.
+     */
+    @JsonIgnore
+    public String getTargetId() {
+        return targetId;
+    }
+
+    /**
+     * Returns the deployment that was queued, or null if the deployment was rejected.
+     */
+    @JsonProperty("deployment")
+    public Deployment getDeployment() {
+        return deployment;
+    }
+
+    @Override
+    public String toString() {
+        return "TargetDeploymentResult{" +
+               "targetId='" + targetId + '\'' +
+               ", success=" + success +
+               ", error='" + error + '\'' +
+               ", deployment=" + deployment +
+               '}';
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Result of an operation on a single target that's part of a bulk operation, like creating or deleting several targets at once.
+ *
+ * @author avasquez
+ */
+public class TargetOperationResult {
+
+    protected String env;
+    protected String siteName;
+    protected boolean success;
+    protected String error;
+
+    public static TargetOperationResult success(String env, String siteName) {
+        return new TargetOperationResult(env, siteName, true, null);
+    }
+
+    public static TargetOperationResult failure(String env, String siteName, String error) {
+        return new TargetOperationResult(env, siteName, false, error);
+    }
+
+    public TargetOperationResult(String env, String siteName, boolean success, String error) {
+        this.env = env;
+        this.siteName = siteName;
+        this.success = success;
+        this.error = error;
+    }
+
+    /**
+     * Returns the environment of the target.
+     */
+    @JsonProperty("env")
+    public String getEnv() {
+        return env;
+    }
+
+    /**
+     * Returns the site name of the target.
+     */
+    @JsonProperty("site_name")
+    public String getSiteName() {
+        return siteName;
+    }
+
+    /**
+     * Returns true if the operation succeeded for the target.
+     */
+    @JsonProperty("success")
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Returns the reason why the operation failed, or null if it succeeded.
+     */
+    @JsonProperty("error")
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "TargetOperationResult{" +
+               "env='" + env + '\'' +
+               ", siteName='" + siteName + '\'' +
+               ", success=" + success +
+               ", error='" + error + '\'' +
+               '}';
+    }
+
+}
@@ -16,6 +16,8 @@
  */
 package org.craftercms.deployer.api;
 
+import java.io.File;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -48,6 +50,18 @@ public interface TargetService {
     Target createTarget(String env, String siteName, boolean replace, String templateName,
                         Map<String, Object> templateParams) throws TargetAlreadyExistsException, TargetServiceException;
 
+    /**
+     * Creates several targets at once. The configurations of all the targets are written first, and then the targets are loaded
+     * in parallel. A failure while creating one target doesn't affect the rest.
+     *
+     * @param requests the requests for the targets to create
+     *
+     * @return the result of each request, in the same order as the requests
+     *
+     * @throws TargetServiceException if a general error occurs
+     */
+    List<TargetOperationResult> createTargets(List<TargetCreationRequest> requests) throws TargetServiceException;
+
     /**
      * Deletes a target with the given ID.
      *
@@ -68,6 +82,19 @@ public interface TargetService {
      */
     List<Target> resolveTargets() throws TargetServiceException;
 
+    /**
+     * Resolves only the targets affected by the specified changed files, which can be target YAML config files or target
+     * application context files: targets with new/modified files are loaded and targets whose YAML config file was deleted are
+     * closed. Other files are ignored.
+     *
+     * @param changedFiles the files that have been created, modified or deleted
+     *
+     * @return the targets that were affected by the changes, after being loaded
+     *
+     * @throws TargetServiceException if a general error occurs
+     */
+    List<Target> resolveTargets(Collection<File> changedFiles) throws TargetServiceException;
+
     /**
      * Returns all current loaded targets
      *
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.configuration2.BaseHierarchicalConfiguration;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.craftercms.deployer.api.exceptions.DeployerConfigurationException;
+import org.craftercms.deployer.utils.ConfigUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.Resource;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Cache of the base target resources (the base YAML configuration and the base application context, plus their overrides),
+ * so that they're parsed once instead of once per target. Each target gets its own copy of the cached configurations and bean
+ * definitions, so the cache itself is never modified by a target. The cache is reloaded when the content of any of the
+ * resources changes. The content of the resources (only a few small files) is hashed on every check, since the last modified
+ * date and length can miss a change. The hashes are also combined into a fingerprint, so that targets can detect when the
+ * base resources actually changed.
+ *
+ * @author avasquez
+ */
+public class BaseTargetConfigCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BaseTargetConfigCache.class);
+
+    protected ResourceState baseYamlConfigState;
+    protected ResourceState baseYamlConfigOverrideState;
+    protected ResourceState baseContextState;
+    protected ResourceState baseContextOverrideState;
+    protected List<HierarchicalConfiguration> baseYamlConfigs;
+    protected DefaultListableBeanFactory baseBeanDefinitions;
+
+    public BaseTargetConfigCache(Resource baseYamlConfigResource, Resource baseYamlConfigOverrideResource,
+                                 Resource baseContextResource, Resource baseContextOverrideResource) {
+        this.baseYamlConfigState = new ResourceState(baseYamlConfigResource);
+        this.baseYamlConfigOverrideState = new ResourceState(baseYamlConfigOverrideResource);
+        this.baseContextState = new ResourceState(baseContextResource);
+        this.baseContextOverrideState = new ResourceState(baseContextOverrideResource);
+    }
+
+    /**
+     * Returns copies of the base YAML configurations that exist, in order of precedence (first the override, then the base
+     * configuration).
+     *
+     * @return the base YAML configurations (empty if none exists)
+     *
+     * @throws DeployerConfigurationException if a base YAML configuration couldn't be loaded
+     */
+    public synchronized List<HierarchicalConfiguration> getBaseYamlConfigurations() throws DeployerConfigurationException {
+        // Check both resources, without short-circuiting, so that their state is always up to date
+        boolean changed = baseYamlConfigOverrideState.checkChanged() | baseYamlConfigState.checkChanged();
+
+        if (changed || baseYamlConfigs == null) {
+            List<HierarchicalConfiguration> configs = new ArrayList<>(2);
+
+            for (ResourceState state : Arrays.asList(baseYamlConfigOverrideState, baseYamlConfigState)) {
+                if (state.exists()) {
+                    logger.debug("Loading base target YAML config at {}", state.getResource());
+
+                    configs.add(ConfigUtils.loadYamlConfiguration(state.getResource()));
+                }
+            }
+
+            baseYamlConfigs = Collections.unmodifiableList(configs);
+        }
+
+        List<HierarchicalConfiguration> copies = new ArrayList<>(baseYamlConfigs.size());
+        for (HierarchicalConfiguration config : baseYamlConfigs) {
+            // The node model is immutable, so the copy shares the nodes with the cached configuration
+            copies.add(new BaseHierarchicalConfiguration(config));
+        }
+
+        return copies;
+    }
+
+    /**
+     * Registers copies of the bean definitions of the base application contexts (the base context first, then the override)
+     * in the specified registry.
+     *
+     * @param registry the registry where the bean definitions should be registered (normally the target's context)
+     *
+     * @throws DeployerConfigurationException if a base application context couldn't be loaded
+     */
+    public synchronized void registerBaseBeanDefinitions(BeanDefinitionRegistry registry) throws DeployerConfigurationException {
+        boolean changed = baseContextState.checkChanged() | baseContextOverrideState.checkChanged();
+
+        if (changed || baseBeanDefinitions == null) {
+            // The bean factory keeps the registration order, and lets the override replace the base definitions
+            DefaultListableBeanFactory beanDefinitions = new DefaultListableBeanFactory();
+            XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(beanDefinitions);
+            reader.setValidationMode(XmlBeanDefinitionReader.VALIDATION_XSD);
+
+            for (ResourceState state : Arrays.asList(baseContextState, baseContextOverrideState)) {
+                if (state.exists()) {
+                    logger.debug("Loading base target application context at {}", state.getResource());
+
+                    try {
+                        reader.loadBeanDefinitions(state.getResource());
+                    } catch (Exception e) {
+                        throw new DeployerConfigurationException("Failed to load application context at " +
+                                                                 state.getResource(), e);
+                    }
+                }
+            }
+
+            baseBeanDefinitions = beanDefinitions;
+        }
+
+        for (String name : baseBeanDefinitions.getBeanDefinitionNames()) {
+            BeanDefinition definition = baseBeanDefinitions.getBeanDefinition(name);
+            if (definition instanceof AbstractBeanDefinition) {
+                definition = ((AbstractBeanDefinition)definition).cloneBeanDefinition();
+            }
+
+            registry.registerBeanDefinition(name, definition);
+
+            for (String alias : baseBeanDefinitions.getAliases(name)) {
+                registry.registerAlias(name, alias);
+            }
+        }
+    }
+
+    /**
+     * Returns a fingerprint of the content of all the base resources, which changes only when the content of any of them
+     * changes (or a resource is created or deleted).
+     *
+     * @return the hex fingerprint of the base resources
+     *
+     * @throws DeployerConfigurationException if a base resource couldn't be read
+     */
+    public synchronized String getFingerprint() throws DeployerConfigurationException {
+        StringBuilder fingerprint = new StringBuilder();
+
+        for (ResourceState state : Arrays.asList(baseYamlConfigState, baseYamlConfigOverrideState, baseContextState,
+                                                 baseContextOverrideState)) {
+            // Only updates the state, the cached configurations are reloaded the next time they're requested
+            if (state.checkChanged()) {
+                invalidate(state);
+            }
+
+            fingerprint.append(state.exists() ? DigestUtils.md5DigestAsHex(state.getDigest()) : "-").append(':');
+        }
+
+        return DigestUtils.md5DigestAsHex(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Discards the cached configuration or bean definitions that depend on the resource, since the change won't be reported
+     * again by the resource state.
+     */
+    protected void invalidate(ResourceState state) {
+        if (state == baseYamlConfigState || state == baseYamlConfigOverrideState) {
+            baseYamlConfigs = null;
+        } else {
+            baseBeanDefinitions = null;
+        }
+    }
+
+    /**
+     * Keeps track of the content of a resource.
+     */
+    protected static class ResourceState {
+
+        protected Resource resource;
+        protected byte[] digest;
+
+        public ResourceState(Resource resource) {
+            this.resource = resource;
+        }
+
+        public Resource getResource() {
+            return resource;
+        }
+
+        public boolean exists() {
+            return digest != null;
+        }
+
+        /**
+         * Returns the MD5 digest of the content of the resource the last time it was checked, or null if it didn't exist.
+         */
+        public byte[] getDigest() {
+            return digest;
+        }
+
+        /**
+         * Updates the state of the resource.
+         *
+         * @return true if the resource was created, deleted or its content changed since the last call
+         */
+        public boolean checkChanged() throws DeployerConfigurationException {
+            if (!resource.exists()) {
+                boolean changed = digest != null;
+
+                digest = null;
+
+                return changed;
+            }
+
+            byte[] currentDigest;
+            try (InputStream in = resource.getInputStream()) {
+                currentDigest = DigestUtils.md5Digest(in);
+            } catch (IOException e) {
+                throw new DeployerConfigurationException("Unable to read resource " + resource, e);
+            }
+
+            boolean changed = !Arrays.equals(digest, currentDigest);
+
+            digest = currentDigest;
+
+            return changed;
+        }
+
+    }
+
+}
@@ -33,13 +33,23 @@ public class DeploymentConstants {
     public static final String TARGET_ID_CONFIG_KEY = "target.id";
     public static final String TARGET_SCHEDULED_DEPLOYMENT_ENABLED_CONFIG_KEY = "target.deployment.scheduling.enabled";
     public static final String TARGET_SCHEDULED_DEPLOYMENT_CRON_CONFIG_KEY = "target.deployment.scheduling.cron";
+    public static final String TARGET_SCHEDULED_DEPLOYMENT_ADAPTIVE_ENABLED_CONFIG_KEY = "target.deployment.scheduling.adaptive.enabled";
+    public static final String TARGET_SCHEDULED_DEPLOYMENT_ADAPTIVE_MIN_INTERVAL_CONFIG_KEY =
+        "target.deployment.scheduling.adaptive.minInterval";
+    public static final String TARGET_SCHEDULED_DEPLOYMENT_ADAPTIVE_MAX_INTERVAL_CONFIG_KEY =
+        "target.deployment.scheduling.adaptive.maxInterval";
     public static final String TARGET_DEPLOYMENT_PIPELINE_CONFIG_KEY = "target.deployment.pipeline";
+    public static final String TARGET_DEPLOYMENT_COALESCING_ENABLED_CONFIG_KEY = "target.deployment.coalescing.enabled";
+    public static final String TARGET_DEPLOYMENT_TIMEOUT_CONFIG_KEY = "target.deployment.timeout";
+    public static final String TARGET_DEPLOYMENT_QUEUE_CAPACITY_CONFIG_KEY = "target.deployment.queue.capacity";
+    public static final String TARGET_DEPLOYMENT_QUEUE_FULL_POLICY_CONFIG_KEY = "target.deployment.queue.fullPolicy";
 
     // Processor-specific Configuration Keys
 
     public static final String PROCESSOR_NAME_CONFIG_KEY = "processorName";
     public static final String PROCESSOR_INCLUDE_FILES_CONFIG_KEY = "includeFiles";
     public static final String PROCESSOR_EXCLUDE_FILES_CONFIG_KEY = "excludeFiles";
+    public static final String PROCESSOR_TIMEOUT_CONFIG_KEY = "timeout";
 
     // Processor params
 
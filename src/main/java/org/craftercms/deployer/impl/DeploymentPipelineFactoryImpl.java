@@ -27,11 +27,14 @@ import org.craftercms.deployer.utils.ConfigUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
 import static org.craftercms.deployer.impl.DeploymentConstants.PROCESSOR_NAME_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_DEPLOYMENT_TIMEOUT_CONFIG_KEY;
 
 /**
  * Default implementation of {@link DeploymentPipeline}.
@@ -43,6 +46,13 @@ public class DeploymentPipelineFactoryImpl implements DeploymentPipelineFactory
 
     private static final Logger logger = LoggerFactory.getLogger(DeploymentPipelineFactoryImpl.class);
 
+    protected TaskScheduler taskScheduler;
+
+    @Autowired
+    public DeploymentPipelineFactoryImpl(TaskScheduler taskScheduler) {
+        this.taskScheduler = taskScheduler;
+    }
+
     @Override
     public DeploymentPipeline getPipeline(HierarchicalConfiguration configuration, ApplicationContext applicationContext,
                                           String pipelinePropertyName) throws DeployerException {
@@ -66,7 +76,9 @@ public class DeploymentPipelineFactoryImpl implements DeploymentPipelineFactory
             }
         }
 
-        return new DeploymentPipelineImpl(deploymentProcessors);
+        long deploymentTimeout = ConfigUtils.getIntegerProperty(configuration, TARGET_DEPLOYMENT_TIMEOUT_CONFIG_KEY, 0) * 1000L;
+
+        return new DeploymentPipelineImpl(deploymentProcessors, deploymentTimeout, taskScheduler);
     }
 
 }
@@ -17,8 +17,9 @@
 package org.craftercms.deployer.impl;
 
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.craftercms.deployer.api.Deployment;
@@ -27,9 +28,14 @@ import org.craftercms.deployer.api.DeploymentProcessor;
 import org.craftercms.deployer.api.exceptions.DeployerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.TaskScheduler;
 
 /**
- * Default implementation of {@link DeploymentPipeline}.
+ * Default implementation of {@link DeploymentPipeline}. Timeouts are enforced per processor (see
+ * {@link DeploymentProcessor#getTimeout()}) and per deployment: when a timeout expires, the running processor is cancelled
+ * through {@link DeploymentProcessor#cancel(Deployment)} and by interrupting its thread. A processor that times out fails like
+ * it would with any other error, while a deployment that times out is cancelled. Processors that run after the deployment has
+ * ended (like the post processors that report it) are only limited by their own timeout.
  *
  * @author avasquez
  */
@@ -38,9 +44,29 @@ public class DeploymentPipelineImpl implements DeploymentPipeline {
     private static final Logger logger = LoggerFactory.getLogger(DeploymentServiceImpl.class);
 
     protected List<DeploymentProcessor> deploymentProcessors;
+    protected long deploymentTimeout;
+    protected TaskScheduler taskScheduler;
+    protected Deployment currentDeployment;
+    protected ScheduledFuture<?> deploymentTimeoutFuture;
+    protected DeploymentProcessor currentProcessor;
+    protected Thread currentThread;
 
     public DeploymentPipelineImpl(List<DeploymentProcessor> deploymentProcessors) {
+        this(deploymentProcessors, 0, null);
+    }
+
+    /**
+     * Creates a pipeline with timeouts.
+     *
+     * @param deploymentProcessors  the processors of the pipeline
+     * @param deploymentTimeout     the max time, in milliseconds, that a deployment can take, or 0 for no limit
+     * @param taskScheduler         the scheduler used to check the timeouts. If null, timeouts are not enforced
+     */
+    public DeploymentPipelineImpl(List<DeploymentProcessor> deploymentProcessors, long deploymentTimeout,
+                                  TaskScheduler taskScheduler) {
         this.deploymentProcessors = deploymentProcessors;
+        this.deploymentTimeout = deploymentTimeout;
+        this.taskScheduler = taskScheduler;
     }
 
     @Override
@@ -65,17 +91,130 @@ public class DeploymentPipelineImpl implements DeploymentPipeline {
     public void execute(Deployment deployment) {
         deployment.start();
 
-        executeProcessors(deployment);
+        synchronized (this) {
+            currentDeployment = deployment;
+            deploymentTimeoutFuture = scheduleTimeout(deploymentTimeout, () -> {
+                if (cancel(deployment)) {
+                    logger.warn("Deployment of target '{}' timed out after {} ms and was cancelled",
+                                deployment.getTarget().getId(), deploymentTimeout);
+                }
+            });
+        }
+
+        try {
+            executeProcessors(deployment);
+        } finally {
+            synchronized (this) {
+                stopDeploymentTimeout();
+
+                currentDeployment = null;
+            }
+        }
 
         deployment.end(Deployment.Status.SUCCESS);
     }
 
+    /**
+     * Cancels the deployment, if it's the current deployment and it hasn't ended yet. Once the deployment has ended, the
+     * processors that are still executed (like the ones that report the deployment) are not interrupted.
+     */
+    @Override
+    public synchronized boolean cancel(Deployment deployment) {
+        if (deployment != null && deployment == currentDeployment && deployment.isRunning()) {
+            deployment.cancel();
+
+            // The deployment is ended before the next processor, so its timeout is no longer needed
+            stopDeploymentTimeout();
+
+            if (currentProcessor != null) {
+                cancelCurrentProcessor();
+            }
+
+            return true;
+        } else {
+            return false;
+        }
+    }
+
     protected void executeProcessors(Deployment deployment) {
         if (CollectionUtils.isNotEmpty(deploymentProcessors)) {
             for (DeploymentProcessor processor : deploymentProcessors) {
-                processor.execute(deployment);
+                if (deployment.isCancelled()) {
+                    // Ending the deployment skips the remaining main processors, while post processors can still report it
+                    deployment.end(Deployment.Status.FAILURE);
+                }
+                if (!deployment.isRunning()) {
+                    synchronized (this) {
+                        stopDeploymentTimeout();
+                    }
+                }
+
+                executeProcessor(processor, deployment);
+            }
+        }
+    }
+
+    protected void executeProcessor(DeploymentProcessor processor, Deployment deployment) {
+        synchronized (this) {
+            currentProcessor = processor;
+            currentThread = Thread.currentThread();
+        }
+
+        long timeout = processor.getTimeout();
+        ScheduledFuture<?> timeoutFuture = scheduleTimeout(timeout, () -> {
+            synchronized (this) {
+                if (currentProcessor == processor) {
+                    logger.warn("Processor {} of target '{}' timed out after {} ms and was cancelled", processor,
+                                deployment.getTarget().getId(), timeout);
+
+                    cancelCurrentProcessor();
+                }
+            }
+        });
+
+        try {
+            processor.execute(deployment);
+        } finally {
+            if (timeoutFuture != null) {
+                timeoutFuture.cancel(false);
+            }
+
+            synchronized (this) {
+                currentProcessor = null;
+                currentThread = null;
+
+                // Clear the interrupt (if any), so that it doesn't affect the next processors
+                Thread.interrupted();
             }
         }
     }
 
+    /**
+     * Stops the timeout of the current deployment. Should be called while holding the lock of the pipeline.
+     */
+    protected void stopDeploymentTimeout() {
+        if (deploymentTimeoutFuture != null) {
+            deploymentTimeoutFuture.cancel(false);
+            deploymentTimeoutFuture = null;
+        }
+    }
+
+    protected void cancelCurrentProcessor() {
+        try {
+            currentProcessor.cancel(currentDeployment);
+        } catch (Exception e) {
+            logger.error("Failed to cancel processor " + currentProcessor, e);
+        }
+
+        currentThread.interrupt();
+    }
+
+    protected ScheduledFuture<?> scheduleTimeout(long timeout, Runnable timeoutTask) {
+        if (timeout > 0 && taskScheduler != null) {
+            return taskScheduler.schedule(timeoutTask, new Date(System.currentTimeMillis() + timeout));
+        } else {
+            return null;
+        }
+    }
+
 }
@@ -17,20 +17,48 @@
 package org.craftercms.deployer.impl;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.lang3.StringUtils;
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.DeploymentService;
 import org.craftercms.deployer.api.Target;
+import org.craftercms.deployer.api.TargetDeploymentResult;
 import org.craftercms.deployer.api.TargetService;
+import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.api.exceptions.DeploymentQueueFullException;
 import org.craftercms.deployer.api.exceptions.DeploymentServiceException;
 import org.craftercms.deployer.api.exceptions.TargetNotFoundException;
 import org.craftercms.deployer.api.exceptions.TargetServiceException;
+import org.craftercms.deployer.utils.ConfigUtils;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_DEPLOYMENT_PIPELINE_CONFIG_KEY;
+import static org.craftercms.deployer.impl.processors.GitPullProcessor.REMOTE_REPO_BRANCH_CONFIG_KEY;
+import static org.craftercms.deployer.impl.processors.GitPullProcessor.REMOTE_REPO_URL_CONFIG_KEY;
+
 /**
  * Default implementation of {@link DeploymentService}.
  *
@@ -39,15 +67,37 @@ import org.springframework.stereotype.Component;
 @Component("deploymentService")
 public class DeploymentServiceImpl implements DeploymentService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DeploymentServiceImpl.class);
+
+    public static final String DEFAULT_REMOTE_REPO_BRANCH = "master";
+
     protected final TargetService targetService;
+    protected final TaskScheduler taskScheduler;
+    protected final ProcessedCommitsStore processedCommitsStore;
+    protected final long pushDeploymentDebounceDelay;
+    protected final ConcurrentMap<String, ScheduledFuture<?>> pendingPushDeployments;
 
     @Autowired
-    public DeploymentServiceImpl(TargetService targetService) {
+    public DeploymentServiceImpl(TargetService targetService,
+                                 TaskScheduler taskScheduler,
+                                 ProcessedCommitsStore processedCommitsStore,
+                                 @Value("${deployer.main.deployments.push.debounceDelay}") long pushDeploymentDebounceDelay) {
         this.targetService = targetService;
+        this.taskScheduler = taskScheduler;
+        this.processedCommitsStore = processedCommitsStore;
+        this.pushDeploymentDebounceDelay = pushDeploymentDebounceDelay;
+        this.pendingPushDeployments = new ConcurrentHashMap<>();
     }
 
     @Override
-    public List<Deployment> deployAllTargets(boolean waitTillDone, Map<String, Object> params) throws DeploymentServiceException {
+    public List<TargetDeploymentResult> deployAllTargets(boolean waitTillDone,
+                                                         Map<String, Object> params) throws DeploymentServiceException {
+        return deployAllTargets(null, null, waitTillDone, params);
+    }
+
+    @Override
+    public List<TargetDeploymentResult> deployAllTargets(String env, String siteNamePattern, boolean waitTillDone,
+                                                         Map<String, Object> params) throws DeploymentServiceException {
         List<Target> targets;
         try {
             targets = targetService.getAllTargets();
@@ -55,21 +105,46 @@ public class DeploymentServiceImpl implements DeploymentService {
             throw new DeploymentServiceException("Unable to retrieve list of targets", e);
         }
 
+        Pattern siteNameRegex;
+        try {
+            siteNameRegex = StringUtils.isNotEmpty(siteNamePattern) ? Pattern.compile(siteNamePattern) : null;
+        } catch (PatternSyntaxException e) {
+            throw new DeploymentServiceException("Invalid site name pattern '" + siteNamePattern + "'", e);
+        }
+
+        List<TargetDeploymentResult> results = new ArrayList<>();
         List<Deployment> deployments = new ArrayList<>();
 
         if (CollectionUtils.isNotEmpty(targets)) {
+            // Don't wait on each target, so all deployments are queued at once and run in parallel in the deployment executor
             for (Target target : targets) {
-                Deployment deployment = target.deploy(waitTillDone, params);
-                deployments.add(deployment);
+                if ((StringUtils.isEmpty(env) || env.equals(target.getEnv())) &&
+                    (siteNameRegex == null || siteNameRegex.matcher(target.getSiteName()).matches())) {
+                    try {
+                        Deployment deployment = target.deploy(false, params);
+
+                        deployments.add(deployment);
+                        results.add(TargetDeploymentResult.accepted(target, deployment));
+                    } catch (DeploymentQueueFullException e) {
+                        logger.warn("Deployment of target '{}' rejected: {}", target.getId(), e.getMessage());
+
+                        results.add(TargetDeploymentResult.rejected(target, e.getMessage()));
+                    }
+                }
             }
         }
 
-        return deployments;
+        if (waitTillDone && !deployments.isEmpty()) {
+            waitTillDone(deployments);
+        }
+
+        return results;
     }
 
     @Override
     public Deployment deployTarget(String env, String siteName, boolean waitTillDone,
-                                   Map<String, Object> params) throws TargetNotFoundException, DeploymentServiceException {
+                                   Map<String, Object> params) throws TargetNotFoundException, DeploymentQueueFullException,
+                                                                      DeploymentServiceException {
         try {
             return targetService.getTarget(env, siteName).deploy(waitTillDone, params);
         } catch (TargetServiceException e) {
@@ -77,4 +152,142 @@ public class DeploymentServiceImpl implements DeploymentService {
         }
     }
 
+    @Override
+    public List<Target> deployTargetsOnPush(String repoUrl, String branch, String commitId,
+                                            Map<String, Object> params) throws DeploymentServiceException {
+        List<Target> targets;
+        try {
+            targets = targetService.getAllTargets();
+        } catch (TargetServiceException e) {
+            throw new DeploymentServiceException("Unable to retrieve list of targets", e);
+        }
+
+        String normalizedRepoUrl = normalizeRepoUrl(repoUrl);
+        String branchName = StringUtils.isNotEmpty(branch) ? Repository.shortenRefName(branch) : DEFAULT_REMOTE_REPO_BRANCH;
+        List<Target> matchingTargets = new ArrayList<>();
+
+        if (CollectionUtils.isNotEmpty(targets)) {
+            for (Target target : targets) {
+                try {
+                    if (pullsFrom(target, normalizedRepoUrl, branchName) && !isCommitProcessed(target, commitId)) {
+                        schedulePushDeployment(target, params);
+
+                        matchingTargets.add(target);
+                    }
+                } catch (DeployerException e) {
+                    throw new DeploymentServiceException("Error while scheduling push deployment for target '" +
+                                                         target.getId() + "'", e);
+                }
+            }
+        }
+
+        logger.info("Push received for repo {}, branch {}: {} matching target(s) will be deployed", repoUrl, branchName,
+                    matchingTargets.size());
+
+        return matchingTargets;
+    }
+
+    protected void waitTillDone(List<Deployment> deployments) throws DeploymentServiceException {
+        logger.debug("Waiting for completion of {} deployment(s)...", deployments.size());
+
+        List<CompletableFuture<Deployment>> futures = deployments.stream()
+                                                                 .map(Deployment::getDoneFuture)
+                                                                 .collect(Collectors.toList());
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new DeploymentServiceException("Interrupted while waiting for deployment completion", e);
+        } catch (ExecutionException | CancellationException e) {
+            // allOf only fails after all deployments are done, so the results are still available
+            logger.error("Some deployments didn't complete normally", e);
+        }
+    }
+
+    /**
+     * Schedules the deployment of the target after the debounce delay, cancelling any push deployment of the target that
+     * hasn't started yet.
+     */
+    protected void schedulePushDeployment(Target target, Map<String, Object> params) {
+        if (pushDeploymentDebounceDelay <= 0) {
+            deployOnPush(target, params);
+            return;
+        }
+
+        String targetId = target.getId();
+        Date startTime = new Date(System.currentTimeMillis() + pushDeploymentDebounceDelay);
+
+        pendingPushDeployments.compute(targetId, (id, previousFuture) -> {
+            if (previousFuture != null) {
+                previousFuture.cancel(false);
+            }
+
+            AtomicReference<ScheduledFuture<?>> futureHolder = new AtomicReference<>();
+            ScheduledFuture<?> future = taskScheduler.schedule(() -> {
+                // Only remove the entry if it's still this task's future, since a newer push could have replaced it while
+                // this task was already running (the holder is set before compute releases the entry's lock)
+                pendingPushDeployments.computeIfPresent(targetId, (key, pendingFuture) ->
+                    pendingFuture == futureHolder.get() ? null : pendingFuture);
+
+                deployOnPush(target, params);
+            }, startTime);
+
+            futureHolder.set(future);
+
+            return future;
+        });
+    }
+
+    protected void deployOnPush(Target target, Map<String, Object> params) {
+        try {
+            target.deploy(Deployment.Priority.PUSH, false, params);
+        } catch (DeploymentQueueFullException e) {
+            logger.warn("Push deployment of target '{}' rejected: {}", target.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Returns true if any of the processors of the target pipeline pulls from the specified repo and branch.
+     */
+    protected boolean pullsFrom(Target target, String normalizedRepoUrl, String branch) throws DeployerException {
+        Configuration config = target.getConfiguration();
+
+        if (config instanceof HierarchicalConfiguration) {
+            List<HierarchicalConfiguration> processorConfigs = ConfigUtils.getConfigurationsAt(
+                (HierarchicalConfiguration)config, TARGET_DEPLOYMENT_PIPELINE_CONFIG_KEY);
+
+            for (HierarchicalConfiguration processorConfig : processorConfigs) {
+                String processorRepoUrl = ConfigUtils.getStringProperty(processorConfig, REMOTE_REPO_URL_CONFIG_KEY);
+                String processorBranch = ConfigUtils.getStringProperty(processorConfig, REMOTE_REPO_BRANCH_CONFIG_KEY,
+                                                                       DEFAULT_REMOTE_REPO_BRANCH);
+
+                if (StringUtils.isNotEmpty(processorRepoUrl) &&
+                    normalizeRepoUrl(processorRepoUrl).equals(normalizedRepoUrl) &&
+                    Repository.shortenRefName(processorBranch).equals(branch)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    protected boolean isCommitProcessed(Target target, String commitId) throws DeployerException {
+        if (StringUtils.isNotEmpty(commitId) && ObjectId.isId(commitId)) {
+            ObjectId processedCommitId = processedCommitsStore.load(target.getId());
+
+            return processedCommitId != null && processedCommitId.equals(ObjectId.fromString(commitId));
+        } else {
+            return false;
+        }
+    }
+
+    protected String normalizeRepoUrl(String repoUrl) {
+        String normalizedUrl = StringUtils.removeEnd(StringUtils.trim(repoUrl), "/");
+        normalizedUrl = StringUtils.removeEnd(normalizedUrl, ".git");
+
+        return StringUtils.removeEnd(normalizedUrl, "/");
+    }
+
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.craftercms.deployer.utils.GitUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Required;
+
+/**
+ * Keeps the local Git repository of a target open between deployments, so that the processors of the target (like the Git pull
+ * and Git diff processors) share the same {@link Repository} instance, instead of opening it (and reading its config, refs and
+ * pack indexes) on each deployment. It lives in the target application context, so the repository is closed when the target
+ * is deactivated or closed.
+ *
+ * <p>The {@link Git} instances returned by {@link #open()} should be closed after being used, like any other {@link Git}
+ * instance. The repository is only closed when it's invalidated (which should be done when it's re-cloned or reset) or the
+ * cache is destroyed, and all the {@link Git} instances that use it have been closed.</p>
+ *
+ * @author avasquez
+ */
+public class GitRepositoryCache implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitRepositoryCache.class);
+
+    protected File localRepoFolder;
+    protected Repository repository;
+    protected AtomicLong openCount;
+    protected AtomicLong reuseCount;
+
+    public GitRepositoryCache() {
+        openCount = new AtomicLong();
+        reuseCount = new AtomicLong();
+    }
+
+    /**
+     * Sets the local filesystem folder that contains the Git repository.
+     */
+    @Required
+    public void setLocalRepoFolder(File localRepoFolder) {
+        this.localRepoFolder = localRepoFolder;
+    }
+
+    /**
+     * Returns a {@link Git} instance for the repository, opening the repository if it's not open yet.
+     *
+     * @return the Git instance, which should be closed after being used
+     *
+     * @throws IOException if the repository couldn't be opened
+     */
+    public synchronized Git open() throws IOException {
+        if (repository == null) {
+            logger.debug("Opening local Git repository at {}", localRepoFolder);
+
+            try (Git git = GitUtils.openRepository(localRepoFolder)) {
+                repository = git.getRepository();
+                // Keep the repository open after the Git instance is closed
+                repository.incrementOpen();
+            }
+
+            openCount.incrementAndGet();
+        } else {
+            reuseCount.incrementAndGet();
+        }
+
+        repository.incrementOpen();
+
+        return new CachedGit(repository);
+    }
+
+    /**
+     * Removes the repository from the cache, so that it's opened again the next time. The repository is closed when all the
+     * {@link Git} instances that use it have been closed.
+     */
+    public synchronized void invalidate() {
+        if (repository != null) {
+            logger.debug("Invalidating cached Git repository at {}", localRepoFolder);
+
+            repository.close();
+            repository = null;
+        }
+    }
+
+    /**
+     * Returns the number of times the repository has been opened.
+     */
+    public long getOpenCount() {
+        return openCount.get();
+    }
+
+    /**
+     * Returns the number of times the open repository has been reused.
+     */
+    public long getReuseCount() {
+        return reuseCount.get();
+    }
+
+    @Override
+    public void destroy() {
+        invalidate();
+    }
+
+    /**
+     * {@link Git} instance that releases its use of the cached repository when it's closed.
+     */
+    protected static class CachedGit extends Git {
+
+        public CachedGit(Repository repository) {
+            super(repository);
+        }
+
+        @Override
+        public void close() {
+            getRepository().close();
+        }
+
+    }
+
+}
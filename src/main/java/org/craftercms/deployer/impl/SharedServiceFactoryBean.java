@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+/**
+ * {@link FactoryBean} that gets the service from the {@link SharedServicePool}, so it's shared with the other targets that use
+ * a service with the same key. If the service isn't in the pool yet, it's created from the (normally prototype) bean with the
+ * target bean name. The service is acquired when the target context is created and released when it's closed.
+ *
+ * @author avasquez
+ */
+public class SharedServiceFactoryBean implements FactoryBean<Object>, BeanFactoryAware, InitializingBean, DisposableBean {
+
+    protected SharedServicePool servicePool;
+    protected String key;
+    protected String targetBeanName;
+    protected BeanFactory beanFactory;
+    protected Object service;
+
+    @Required
+    public void setServicePool(SharedServicePool servicePool) {
+        this.servicePool = servicePool;
+    }
+
+    /**
+     * Sets the key of the service in the pool. The key should include all the configuration that determines the service
+     * instance, including the configuration of any other service it depends on.
+     */
+    @Required
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Sets the name of the bean used to create the service when it's not in the pool yet.
+     */
+    @Required
+    public void setTargetBeanName(String targetBeanName) {
+        this.targetBeanName = targetBeanName;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        // Acquire eagerly, so that the reference count always matches the number of target contexts using the service
+        service = servicePool.acquire(key, () -> beanFactory.getBean(targetBeanName));
+    }
+
+    @Override
+    public Object getObject() throws Exception {
+        return service;
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        if (service != null) {
+            return service.getClass();
+        } else if (beanFactory != null && targetBeanName != null) {
+            return beanFactory.getType(targetBeanName);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (service != null) {
+            service = null;
+
+            servicePool.release(key);
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pool of services that are shared by the target application contexts, instead of each target context creating its own
+ * instances (like search clients, mail senders or template engines). Each service is identified by a key that should include
+ * all the configuration that determines the instance (for example, the Solr server URL for a search client), so targets with
+ * the same configuration get the same instance. The pool keeps a reference count per service: the service is destroyed (if
+ * it's a {@link DisposableBean} or {@link AutoCloseable}) when the last target that uses it releases it.
+ *
+ * @author avasquez
+ */
+@Component("sharedServicePool")
+public class SharedServicePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedServicePool.class);
+
+    protected Map<String, SharedService> services;
+
+    public SharedServicePool() {
+        services = new HashMap<>();
+    }
+
+    /**
+     * Returns the service with the specified key, creating it if there's no service with the key yet, and increments its
+     * reference count. The factory can acquire other services from the pool.
+     *
+     * @param key       the key of the service
+     * @param factory   the factory used to create the service if it doesn't exist yet
+     *
+     * @return the shared service
+     */
+    public synchronized Object acquire(String key, Supplier<?> factory) {
+        SharedService service = services.get(key);
+        if (service == null) {
+            logger.debug("Creating shared service '{}'", key);
+
+            service = new SharedService(factory.get());
+
+            services.put(key, service);
+        }
+
+        service.references++;
+
+        return service.instance;
+    }
+
+    /**
+     * Decrements the reference count of the service with the specified key, destroying the service if it's not referenced
+     * anymore.
+     *
+     * @param key the key of the service
+     */
+    public synchronized void release(String key) {
+        SharedService service = services.get(key);
+        if (service != null && --service.references <= 0) {
+            logger.debug("Destroying shared service '{}' since it's not used anymore", key);
+
+            services.remove(key);
+
+            destroyService(key, service.instance);
+        }
+    }
+
+    /**
+     * Returns the number of services in the pool.
+     */
+    public synchronized int size() {
+        return services.size();
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        services.forEach((key, service) -> destroyService(key, service.instance));
+        services.clear();
+    }
+
+    protected void destroyService(String key, Object instance) {
+        try {
+            if (instance instanceof DisposableBean) {
+                ((DisposableBean)instance).destroy();
+            } else if (instance instanceof AutoCloseable) {
+                ((AutoCloseable)instance).close();
+            }
+        } catch (Exception e) {
+            logger.error("Failed to destroy shared service '" + key + "'", e);
+        }
+    }
+
+    protected static class SharedService {
+
+        protected final Object instance;
+        protected int references;
+
+        public SharedService(Object instance) {
+            this.instance = instance;
+        }
+
+    }
+
+}
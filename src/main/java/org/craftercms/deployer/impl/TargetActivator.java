@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import org.craftercms.deployer.api.DeploymentPipeline;
+import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Creates the heavyweight resources of a target (its application context and deployment pipeline) when the target is activated
+ * lazily, on its first deployment after being loaded or deactivated.
+ *
+ * @author avasquez
+ */
+public interface TargetActivator {
+
+    /**
+     * Loads the application context of the target.
+     *
+     * @return the application context
+     *
+     * @throws DeployerException if the context couldn't be loaded
+     */
+    ConfigurableApplicationContext loadApplicationContext() throws DeployerException;
+
+    /**
+     * Creates the deployment pipeline of the target.
+     *
+     * @param context the application context of the target
+     *
+     * @return the deployment pipeline
+     *
+     * @throws DeployerException if the pipeline couldn't be created
+     */
+    DeploymentPipeline createDeploymentPipeline(ConfigurableApplicationContext context) throws DeployerException;
+
+}
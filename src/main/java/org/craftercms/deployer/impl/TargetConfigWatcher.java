@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import javax.annotation.PreDestroy;
+
+import org.craftercms.deployer.api.TargetService;
+import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the target config folder for created, modified or deleted files, so that only the affected targets are resolved
+ * (see {@link TargetService#resolveTargets(java.util.Collection)}), instead of scanning the whole folder. Bursts of changes are
+ * debounced: the targets are resolved once no more changes have been detected during the debounce delay. If the watch service
+ * overflows and some changes are lost, a full scan is done instead.
+ *
+ * @author avasquez
+ */
+@Component("targetConfigWatcher")
+public class TargetConfigWatcher implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TargetConfigWatcher.class);
+
+    public static final String WATCH_THREAD_NAME = "target-config-watcher";
+
+    protected File targetConfigFolder;
+    protected boolean enabled;
+    protected long debounceDelay;
+    protected TargetService targetService;
+    protected TaskScheduler taskScheduler;
+    protected WatchService watchService;
+    protected Thread watchThread;
+    protected Set<File> changedFiles;
+    protected volatile boolean fullScanRequired;
+    protected ScheduledFuture<?> pendingResolution;
+
+    @Autowired
+    public TargetConfigWatcher(@Value("${deployer.main.targets.config.folderPath}") File targetConfigFolder,
+                               @Value("${deployer.main.targets.scan.watch.enabled}") boolean enabled,
+                               @Value("${deployer.main.targets.scan.watch.debounceDelay}") long debounceDelay,
+                               TargetService targetService,
+                               TaskScheduler taskScheduler) {
+        this.targetConfigFolder = targetConfigFolder;
+        this.enabled = enabled;
+        this.debounceDelay = debounceDelay;
+        this.targetService = targetService;
+        this.taskScheduler = taskScheduler;
+        this.changedFiles = ConcurrentHashMap.newKeySet();
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (enabled) {
+            try {
+                start();
+            } catch (IOException e) {
+                logger.error("Unable to watch target config folder " + targetConfigFolder + ". Changes will only be " +
+                             "detected by the scheduled target scan", e);
+            }
+        }
+    }
+
+    /**
+     * Starts watching the target config folder.
+     */
+    public synchronized void start() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+
+            targetConfigFolder.toPath().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+            watchThread = new Thread(this::watch, WATCH_THREAD_NAME);
+            watchThread.setDaemon(true);
+            watchThread.start();
+
+            logger.info("Watching target config folder {} for changes", targetConfigFolder);
+        }
+    }
+
+    /**
+     * Stops watching the target config folder.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error while closing watch service", e);
+            }
+
+            watchThread.interrupt();
+            watchService = null;
+        }
+        if (pendingResolution != null) {
+            pendingResolution.cancel(false);
+        }
+    }
+
+    protected void watch() {
+        WatchService watchService = this.watchService;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    fullScanRequired = true;
+                } else {
+                    changedFiles.add(new File(targetConfigFolder, ((Path)event.context()).toString()));
+                }
+            }
+
+            scheduleResolution();
+
+            if (!key.reset()) {
+                logger.warn("Target config folder {} is no longer accessible. Changes will only be detected by the " +
+                            "scheduled target scan", targetConfigFolder);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Schedules the resolution of the changed targets after the debounce delay, postponing any resolution that hasn't started.
+     */
+    protected synchronized void scheduleResolution() {
+        if (pendingResolution != null) {
+            pendingResolution.cancel(false);
+        }
+
+        pendingResolution = taskScheduler.schedule(this::resolveChangedTargets,
+                                                   new Date(System.currentTimeMillis() + debounceDelay));
+    }
+
+    protected void resolveChangedTargets() {
+        try {
+            if (fullScanRequired) {
+                fullScanRequired = false;
+                changedFiles.clear();
+
+                logger.info("Some changes in target config folder {} were missed. Doing a full scan", targetConfigFolder);
+
+                targetService.resolveTargets();
+            } else {
+                List<File> files = new ArrayList<>();
+
+                // Take the files one by one, so that files added concurrently are not lost
+                for (Iterator<File> iter = changedFiles.iterator(); iter.hasNext();) {
+                    files.add(iter.next());
+                    iter.remove();
+                }
+
+                if (!files.isEmpty()) {
+                    logger.debug("Resolving targets for changed files {}", files);
+
+                    targetService.resolveTargets(files);
+                }
+            }
+        } catch (DeployerException e) {
+            logger.error("Error while resolving targets for changes in target config folder " + targetConfigFolder, e);
+        }
+    }
+
+}
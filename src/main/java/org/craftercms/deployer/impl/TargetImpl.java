@@ -21,34 +21,48 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.configuration2.Configuration;
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.DeploymentPipeline;
 import org.craftercms.deployer.api.Target;
+import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.api.exceptions.DeploymentQueueFullException;
+import org.craftercms.deployer.utils.BooleanUtils;
+import org.craftercms.deployer.utils.concurrent.PriorityTask;
+import org.craftercms.deployer.utils.concurrent.PriorityTaskComparator;
+import org.craftercms.deployer.utils.concurrent.SerialExecutor;
+import org.craftercms.deployer.utils.scheduling.AdaptiveIntervalTrigger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.scheduling.TaskScheduler;
-import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.Trigger;
+import org.springframework.util.concurrent.ListenableFutureTask;
 
 /**
- * Default implementation of {@link Target}.
+ * Default implementation of {@link Target}. Deployments of all targets share a single executor, but each target runs them one at
+ * a time, in order of priority.
  *
  * @author avasquez
  */
@@ -57,25 +71,69 @@ public class TargetImpl implements Target {
     private static final Logger logger = LoggerFactory.getLogger(TargetImpl.class);
 
     public static final String TARGET_ID_FORMAT = "%s-%s";
+    public static final int MAX_COMPLETED_DEPLOYMENTS = 10;
+
+    protected static final AtomicLong deploymentSequence = new AtomicLong();
 
     protected String env;
     protected String siteName;
-    protected DeploymentPipeline deploymentPipeline;
+    protected volatile DeploymentPipeline deploymentPipeline;
     protected File configurationFile;
     protected Configuration configuration;
-    protected ConfigurableApplicationContext applicationContext;
+    protected String configurationFingerprint;
+    protected volatile ConfigurableApplicationContext applicationContext;
+    protected TargetActivator activator;
+    protected Object activationLock;
+    protected volatile long lastActivityTime;
+    protected volatile Long lastActivationHeapDelta;
     protected ZonedDateTime loadDate;
+    protected TaskScheduler deploymentScheduler;
+    protected Trigger scheduledDeploymentTrigger;
+    protected ScheduledDeploymentTask scheduledDeploymentTask;
     protected ScheduledFuture<?> scheduledDeploymentFuture;
-    protected ExecutorService deploymentExecutor;
-    protected Queue<Deployment> pendingDeployments;
+    protected SerialExecutor deploymentExecutor;
+    protected Deque<DeploymentTask> pendingDeployments;
     protected volatile Deployment currentDeployment;
+    protected Deque<Deployment> completedDeployments;
+    protected boolean deploymentCoalescingEnabled;
+    protected Semaphore scheduledDeploymentLimiter;
+    protected long deploymentPriorityAgingInterval;
+    protected int maxPendingDeployments;
+    protected QueueFullPolicy queueFullPolicy;
+    protected Semaphore pendingDeploymentLimiter;
+    protected AtomicLong rejectedDeploymentCount;
+    protected AtomicLong droppedDeploymentCount;
+    protected volatile boolean draining;
+    protected TargetImpl replacement;
+    protected CompletableFuture<Void> predecessorDrain;
+
+    /**
+     * What to do with a new deployment when the deployment queue is full.
+     */
+    public enum QueueFullPolicy {
+        /**
+         * The new deployment is rejected.
+         */
+        REJECT,
+        /**
+         * The oldest pending scheduled deployment is dropped to make room for the new deployment. If there are no pending
+         * scheduled deployments, the new deployment is rejected.
+         */
+        DROP_OLDEST_SCHEDULED,
+        /**
+         * The new deployment is merged into the last pending deployment, like when coalescing is enabled. If there are no pending
+         * deployments, the new deployment is rejected.
+         */
+        COALESCE
+    }
 
     public static String getId(String env, String siteName) {
         return String.format(TARGET_ID_FORMAT, siteName, env);
     }
 
     public TargetImpl(String env, String siteName, DeploymentPipeline deploymentPipeline, File configurationFile,
-                      Configuration configuration, ConfigurableApplicationContext applicationContext) {
+                      Configuration configuration, ConfigurableApplicationContext applicationContext,
+                      Executor sharedDeploymentExecutor) {
         this.env = env;
         this.siteName = siteName;
         this.deploymentPipeline = deploymentPipeline;
@@ -83,8 +141,88 @@ public class TargetImpl implements Target {
         this.configuration = configuration;
         this.applicationContext = applicationContext;
         this.loadDate = ZonedDateTime.now();
-        this.deploymentExecutor = Executors.newSingleThreadExecutor();
-        this.pendingDeployments = new ConcurrentLinkedQueue<>();
+        this.deploymentExecutor = new SerialExecutor(sharedDeploymentExecutor, new PriorityQueue<>(new PriorityTaskComparator()));
+        this.pendingDeployments = new ConcurrentLinkedDeque<>();
+        this.completedDeployments = new ConcurrentLinkedDeque<>();
+        this.queueFullPolicy = QueueFullPolicy.REJECT;
+        this.rejectedDeploymentCount = new AtomicLong();
+        this.droppedDeploymentCount = new AtomicLong();
+        this.activationLock = new Object();
+        this.lastActivityTime = System.currentTimeMillis();
+        this.predecessorDrain = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Creates a target whose application context and deployment pipeline are created by the activator, on the first deployment
+     * or when {@link #activate()} is called.
+     */
+    public TargetImpl(String env, String siteName, File configurationFile, Configuration configuration,
+                      TargetActivator activator, Executor sharedDeploymentExecutor) {
+        this(env, siteName, null, configurationFile, configuration, null, sharedDeploymentExecutor);
+
+        this.activator = activator;
+    }
+
+    /**
+     * Sets whether a new deployment should be merged into the deployment that's still pending, instead of being queued. The
+     * params of the merged deployments are combined, and the same {@link Deployment} is returned to all callers.
+     */
+    public void setDeploymentCoalescingEnabled(boolean deploymentCoalescingEnabled) {
+        this.deploymentCoalescingEnabled = deploymentCoalescingEnabled;
+    }
+
+    /**
+     * Sets the semaphore, shared by all targets, that limits how many scheduled deployments can be in progress at the same time.
+     * When no permit is available, the scheduled deployment is skipped until its next execution.
+     */
+    public void setScheduledDeploymentLimiter(Semaphore scheduledDeploymentLimiter) {
+        this.scheduledDeploymentLimiter = scheduledDeploymentLimiter;
+    }
+
+    /**
+     * Sets the time, in milliseconds, that a pending deployment of a priority class is run after the pending deployments of the
+     * class immediately above it. A deployment that has waited longer than that is run before the newer deployments of the higher
+     * class. Use 0 to run deployments in the order they were requested, regardless of priority.
+     */
+    public void setDeploymentPriorityAgingInterval(long deploymentPriorityAgingInterval) {
+        this.deploymentPriorityAgingInterval = deploymentPriorityAgingInterval;
+    }
+
+    /**
+     * Sets the max number of pending deployments of the target. Use 0 for no limit.
+     */
+    public void setMaxPendingDeployments(int maxPendingDeployments) {
+        this.maxPendingDeployments = maxPendingDeployments;
+    }
+
+    /**
+     * Sets what to do with a new deployment when the deployment queue is full (default is {@link QueueFullPolicy#REJECT}).
+     */
+    public void setQueueFullPolicy(QueueFullPolicy queueFullPolicy) {
+        this.queueFullPolicy = queueFullPolicy;
+    }
+
+    /**
+     * Sets the semaphore, shared by all targets, that limits how many deployments can be pending at the same time across all
+     * targets. A permit is held by each pending deployment until it starts or is discarded.
+     */
+    public void setPendingDeploymentLimiter(Semaphore pendingDeploymentLimiter) {
+        this.pendingDeploymentLimiter = pendingDeploymentLimiter;
+    }
+
+    /**
+     * Returns the fingerprint of the content of the effective configuration the target was created from, or null if unknown.
+     */
+    public String getConfigurationFingerprint() {
+        return configurationFingerprint;
+    }
+
+    /**
+     * Sets the fingerprint of the content of the effective configuration the target was created from (the target YAML
+     * configuration and application context, plus the base ones), used to detect when the target needs to be reloaded.
+     */
+    public void setConfigurationFingerprint(String configurationFingerprint) {
+        this.configurationFingerprint = configurationFingerprint;
     }
 
     @Override
@@ -118,32 +256,150 @@ public class TargetImpl implements Target {
     }
 
     @Override
-    public Deployment deploy(boolean waitTillDone, Map<String, Object> params) {
-        Deployment deployment = new Deployment(this, params);
-        pendingDeployments.add(deployment);
+    public boolean isActive() {
+        return deploymentPipeline != null;
+    }
+
+    @Override
+    public Long getLastActivationHeapDelta() {
+        return lastActivationHeapDelta;
+    }
+
+    @Override
+    public Long getGitRepositoryOpenCount() {
+        GitRepositoryCache repositoryCache = getGitRepositoryCache();
+
+        return repositoryCache != null ? repositoryCache.getOpenCount() : null;
+    }
+
+    @Override
+    public Long getGitRepositoryReuseCount() {
+        GitRepositoryCache repositoryCache = getGitRepositoryCache();
+
+        return repositoryCache != null ? repositoryCache.getReuseCount() : null;
+    }
+
+    /**
+     * Activates the target, if it's not active, by creating its application context and deployment pipeline through the
+     * activator.
+     *
+     * @return the deployment pipeline of the target
+     *
+     * @throws DeployerException if the target couldn't be activated
+     */
+    public DeploymentPipeline activate() throws DeployerException {
+        // Always take the lock, so that the target can't be deactivated between this call and the start of the deployment
+        synchronized (activationLock) {
+            if (deploymentPipeline == null) {
+                if (activator == null) {
+                    throw new IllegalStateException("Target '" + getId() + "' has been closed");
+                }
+
+                logger.info("Activating target '{}'...", getId());
+
+                long usedMemoryBefore = getUsedMemory();
+
+                ConfigurableApplicationContext context = activator.loadApplicationContext();
+                try {
+                    deploymentPipeline = activator.createDeploymentPipeline(context);
+                } catch (DeployerException | RuntimeException e) {
+                    context.close();
+
+                    throw e;
+                }
+
+                applicationContext = context;
+                // Process-wide delta, since other threads could be allocating memory at the same time
+                lastActivationHeapDelta = Math.max(getUsedMemory() - usedMemoryBefore, 0);
+            }
+
+            return deploymentPipeline;
+        }
+    }
+
+    /**
+     * Deactivates the target, releasing its application context and deployment pipeline, if it's activated lazily and hasn't
+     * had any deployment during the specified idle time. The target is activated again on its next deployment.
+     *
+     * @param idleTimeout the time, in milliseconds, without deployments after which the target is deactivated
+     *
+     * @return true if the target was deactivated, false otherwise
+     */
+    public boolean deactivateIfIdle(long idleTimeout) {
+        if (activator == null || !isActive() || System.currentTimeMillis() - lastActivityTime < idleTimeout) {
+            return false;
+        }
+
+        synchronized (activationLock) {
+            // A deployment holds the target busy from the moment it's queued, so it can't be using the pipeline
+            if (!isActive() || deploymentExecutor.isBusy()) {
+                return false;
+            }
+
+            logger.info("Deactivating target '{}' after being idle for more than {} ms", getId(), idleTimeout);
+
+            destroyResources();
+
+            return true;
+        }
+    }
+
+    @Override
+    public Deployment deploy(boolean waitTillDone, Map<String, Object> params) throws DeploymentQueueFullException {
+        return deploy(Deployment.Priority.MANUAL, waitTillDone, params);
+    }
+
+    @Override
+    public Deployment deploy(Deployment.Priority priority, boolean waitTillDone,
+                             Map<String, Object> params) throws DeploymentQueueFullException {
+        DeploymentTask task = enqueueDeployment(priority, params);
+
+        resetScheduledDeploymentInterval();
 
-        Future<?> future = deploymentExecutor.submit(new DeploymentTask());
         if (waitTillDone) {
             logger.debug("Waiting for deployment completion...");
 
             try {
-                future.get();
-            } catch (InterruptedException | ExecutionException e) {
+                // Wait on the deployment instead of the task, since the deployment could be moved to a replacement target
+                task.getDeployment().getDoneFuture().get();
+            } catch (InterruptedException | ExecutionException | CancellationException e) {
                 logger.error("Unable to wait for deployment completion", e);
             }
         }
 
-        return deployment;
+        return task.getDeployment();
+    }
+
+    @Override
+    public synchronized void scheduleDeployment(TaskScheduler scheduler, Trigger trigger) {
+        deploymentScheduler = scheduler;
+        scheduledDeploymentTrigger = trigger;
+        scheduledDeploymentTask = new ScheduledDeploymentTask();
+        scheduledDeploymentFuture = scheduler.schedule(scheduledDeploymentTask, trigger);
+    }
+
+    @Override
+    public Long getScheduledDeploymentInterval() {
+        if (scheduledDeploymentTrigger instanceof AdaptiveIntervalTrigger) {
+            return ((AdaptiveIntervalTrigger)scheduledDeploymentTrigger).getCurrentInterval();
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public long getRejectedDeploymentCount() {
+        return rejectedDeploymentCount.get();
     }
 
     @Override
-    public void scheduleDeployment(TaskScheduler scheduler, String cronExpression) {
-        scheduledDeploymentFuture = scheduler.schedule(new ScheduledDeploymentTask(), new CronTrigger(cronExpression));
+    public long getDroppedDeploymentCount() {
+        return droppedDeploymentCount.get();
     }
 
     @Override
     public Collection<Deployment> getPendingDeployments() {
-        return new ArrayList<>(pendingDeployments);
+        return pendingDeployments.stream().map(DeploymentTask::getDeployment).collect(Collectors.toList());
     }
 
     @Override
@@ -152,7 +408,43 @@ public class TargetImpl implements Target {
     }
 
     @Override
-    public Collection<Deployment> getAllDeployments() {
+    public Deployment getDeployment(String id) {
+        Deployment currentDeployment = getCurrentDeployment();
+        if (currentDeployment != null && currentDeployment.getId().equals(id)) {
+            return currentDeployment;
+        }
+
+        for (DeploymentTask task : pendingDeployments) {
+            if (task.getDeployment().getId().equals(id)) {
+                return task.getDeployment();
+            }
+        }
+        for (Deployment deployment : completedDeployments) {
+            if (deployment.getId().equals(id)) {
+                return deployment;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public Deployment cancelCurrentDeployment() {
+        Deployment deployment = currentDeployment;
+        DeploymentPipeline pipeline = deploymentPipeline;
+
+        if (deployment != null && pipeline != null && pipeline.cancel(deployment)) {
+            logger.info("Current deployment of target '{}' cancelled", getId());
+
+            return deployment;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized Collection<Deployment> getAllDeployments() {
+        // Synchronized with the start of a deployment, which moves it from the pending deployments to the current one
         Collection<Deployment> deployments = new ArrayList<>();
         Deployment currentDeployment = getCurrentDeployment();
         Collection<Deployment> pendingDeployments = getPendingDeployments();
@@ -167,6 +459,408 @@ public class TargetImpl implements Target {
         return deployments;
     }
 
+    /**
+     * Queues a new deployment. When deployment coalescing is enabled, the deployment is merged into a pending deployment with
+     * the same or higher priority (if any), instead of queueing another full pipeline run. When the target or the shared queue
+     * has no room for another pending deployment, the {@link QueueFullPolicy} decides if the deployment is rejected, replaces
+     * the oldest pending scheduled deployment or is merged into a pending deployment. If the target is being replaced, the
+     * deployment is forwarded to its replacement.
+     *
+     * @throws DeploymentQueueFullException if the deployment was rejected because the queue is full
+     */
+    protected synchronized DeploymentTask enqueueDeployment(Deployment.Priority priority,
+                                                            Map<String, Object> params) throws DeploymentQueueFullException {
+        if (replacement != null) {
+            // The target has been drained into the replacement, which now handles all the deployments
+            return replacement.enqueueDeployment(priority, params);
+        }
+
+        if (BooleanUtils.toBoolean(params.get(DeploymentConstants.REPROCESS_ALL_FILES_PARAM_NAME))) {
+            priority = Deployment.Priority.FULL_REPROCESS;
+        }
+
+        if (deploymentCoalescingEnabled) {
+            DeploymentTask pendingTask = getLastPendingDeployment(priority);
+            if (pendingTask != null) {
+                logger.debug("Merging new deployment of target '{}' into the already pending deployment", getId());
+
+                mergeParams(pendingTask.getDeployment(), params);
+
+                return pendingTask;
+            }
+        }
+
+        if (!reservePendingSlot()) {
+            switch (queueFullPolicy) {
+                case COALESCE:
+                    DeploymentTask pendingTask = getLastPendingDeployment(priority);
+                    if (pendingTask == null) {
+                        pendingTask = pendingDeployments.peekLast();
+                    }
+                    if (pendingTask != null) {
+                        logger.debug("Deployment queue of target '{}' is full. Merging new deployment into the last pending " +
+                                     "deployment", getId());
+
+                        mergeParams(pendingTask.getDeployment(), params);
+
+                        return pendingTask;
+                    }
+                    break;
+                case DROP_OLDEST_SCHEDULED:
+                    if (dropOldestScheduledDeployment() && reservePendingSlot()) {
+                        return queueDeployment(priority, params);
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            rejectedDeploymentCount.incrementAndGet();
+
+            throw new DeploymentQueueFullException(getId());
+        }
+
+        return queueDeployment(priority, params);
+    }
+
+    protected DeploymentTask queueDeployment(Deployment.Priority priority, Map<String, Object> params) {
+        DeploymentTask task = new DeploymentTask(new Deployment(this, params, priority));
+        pendingDeployments.add(task);
+
+        try {
+            deploymentExecutor.execute(task);
+        } catch (RuntimeException e) {
+            removePendingDeployment(task);
+
+            throw e;
+        }
+
+        return task;
+    }
+
+    /**
+     * Reserves a place for a new pending deployment, in the target queue and in the queue shared by all targets.
+     *
+     * @return true if the place was reserved, false if one of the queues is full
+     */
+    protected boolean reservePendingSlot() {
+        if (maxPendingDeployments > 0 && pendingDeployments.size() >= maxPendingDeployments) {
+            return false;
+        }
+
+        return pendingDeploymentLimiter == null || pendingDeploymentLimiter.tryAcquire();
+    }
+
+    /**
+     * Removes the deployment from the pending deployments, releasing its place in the shared queue. Can be safely called more
+     * than once for the same deployment.
+     */
+    protected void removePendingDeployment(DeploymentTask task) {
+        if (pendingDeployments.remove(task) && pendingDeploymentLimiter != null) {
+            pendingDeploymentLimiter.release();
+        }
+    }
+
+    /**
+     * Drops the oldest pending scheduled deployment (which is cancelled), if any.
+     *
+     * @return true if a deployment was dropped, false otherwise
+     */
+    protected boolean dropOldestScheduledDeployment() {
+        for (DeploymentTask task : pendingDeployments) {
+            Deployment deployment = task.getDeployment();
+
+            if (deployment.getPriority() == Deployment.Priority.SCHEDULED) {
+                logger.info("Deployment queue of target '{}' is full. Dropping oldest pending scheduled deployment {}", getId(),
+                            deployment.getId());
+
+                deployment.cancel();
+                deploymentExecutor.remove(task);
+                task.cancel(false);
+
+                droppedDeploymentCount.incrementAndGet();
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the last pending deployment with the same or higher priority than the specified one. Merging a deployment into a
+     * deployment with lower priority would delay it.
+     */
+    protected DeploymentTask getLastPendingDeployment(Deployment.Priority priority) {
+        for (Iterator<DeploymentTask> iter = pendingDeployments.descendingIterator(); iter.hasNext();) {
+            DeploymentTask task = iter.next();
+            if (task.getDeployment().getPriority().compareTo(priority) <= 0) {
+                return task;
+            }
+        }
+
+        return null;
+    }
+
+    protected synchronized boolean startDeployment(DeploymentTask task) {
+        // A deployment dropped from the queue shouldn't be started, and while draining pending deployments are kept for the
+        // replacement target
+        if (task.isCancelled() || draining) {
+            return false;
+        }
+
+        // Once removed from the pending deployments, no other deployment can be merged into this one
+        removePendingDeployment(task);
+
+        currentDeployment = task.getDeployment();
+
+        return true;
+    }
+
+    /**
+     * Merges the params into the deployment. Boolean params are OR'ed, so for example if any of the merged deployments requested
+     * {@code reprocess_all_files}, the merged deployment will reprocess all files. Any other param is overwritten by the new value.
+     */
+    protected void mergeParams(Deployment deployment, Map<String, Object> params) {
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            String name = param.getKey();
+            Object currentValue = deployment.getParam(name);
+            Object newValue = param.getValue();
+
+            if (isBooleanParam(currentValue) && isBooleanParam(newValue)) {
+                newValue = BooleanUtils.toBoolean(currentValue) || BooleanUtils.toBoolean(newValue);
+            }
+            if (newValue != null) {
+                deployment.addParam(name, newValue);
+            }
+        }
+    }
+
+    protected boolean isBooleanParam(Object value) {
+        return value instanceof Boolean || (value != null && BooleanUtils.toBooleanObject(value.toString()) != null);
+    }
+
+    /**
+     * If deployments are scheduled with an {@link AdaptiveIntervalTrigger}, backs off the interval when the deployment found no
+     * changes, or goes back to the min interval otherwise.
+     */
+    protected void adjustScheduledDeploymentInterval(Deployment deployment) {
+        if (scheduledDeploymentTrigger instanceof AdaptiveIntervalTrigger) {
+            AdaptiveIntervalTrigger trigger = (AdaptiveIntervalTrigger)scheduledDeploymentTrigger;
+
+            if (deployment.getStatus() == Deployment.Status.SUCCESS && deployment.isChangeSetEmpty()) {
+                trigger.backOff();
+
+                logger.debug("No changes detected for target '{}'. Scheduled deployment interval is now {} ms", getId(),
+                             trigger.getCurrentInterval());
+            } else {
+                resetScheduledDeploymentInterval();
+            }
+        }
+    }
+
+    protected void resetScheduledDeploymentInterval() {
+        if (scheduledDeploymentTrigger instanceof AdaptiveIntervalTrigger) {
+            AdaptiveIntervalTrigger trigger = (AdaptiveIntervalTrigger)scheduledDeploymentTrigger;
+
+            if (trigger.reset()) {
+                logger.debug("Scheduled deployment interval for target '{}' reset to {} ms", getId(), trigger.getCurrentInterval());
+
+                // The next execution was calculated with the old interval, so reschedule
+                rescheduleDeployment();
+            }
+        }
+    }
+
+    protected synchronized void rescheduleDeployment() {
+        // If the future was cancelled, the target has been closed
+        if (scheduledDeploymentFuture != null && !scheduledDeploymentFuture.isCancelled()) {
+            scheduledDeploymentFuture.cancel(false);
+            scheduledDeploymentFuture = deploymentScheduler.schedule(scheduledDeploymentTask, scheduledDeploymentTrigger);
+        }
+    }
+
+    /**
+     * Destroys the deployment pipeline and closes the application context. Should be called while holding the activation lock.
+     */
+    protected void destroyResources() {
+        DeploymentPipeline pipeline = deploymentPipeline;
+        ConfigurableApplicationContext context = applicationContext;
+
+        deploymentPipeline = null;
+        applicationContext = null;
+
+        if (pipeline != null) {
+            try {
+                pipeline.destroy();
+            } catch (DeployerException e) {
+                logger.error("Failed to destroy deployment pipeline of target '" + getId() + "'", e);
+            }
+        }
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    /**
+     * Returns the {@link GitRepositoryCache} of the application context of the target, or null if the target is not active or
+     * its context doesn't have one.
+     */
+    protected GitRepositoryCache getGitRepositoryCache() {
+        ConfigurableApplicationContext context = applicationContext;
+
+        if (context != null && context.isActive()) {
+            Map<String, GitRepositoryCache> repositoryCaches = context.getBeansOfType(GitRepositoryCache.class, false, false);
+            if (MapUtils.isNotEmpty(repositoryCaches)) {
+                return repositoryCaches.values().iterator().next();
+            }
+        }
+
+        return null;
+    }
+
+    protected long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Replaces this target with the specified target (normally a target created from the updated configuration) without
+     * interrupting the current deployment. Deployments requested to this target after this call are forwarded right away to the
+     * new target, but the new target doesn't start any deployment until this target has been drained: the current deployment is
+     * given the specified time to finish (and is cancelled after that), the pending deployments are moved to the new target
+     * (keeping their ID, their place in the queue and their done future), and this target is closed. The drain runs in the
+     * specified executor, so the caller doesn't wait for the current deployment.
+     *
+     * @param newTarget the target that replaces this target
+     * @param timeout   the max time, in milliseconds, to wait for the current deployment to finish
+     * @param executor  the executor where the drain is run
+     *
+     * @return a future that's completed when this target has been drained and closed
+     */
+    public CompletableFuture<Void> drainTo(TargetImpl newTarget, long timeout, Executor executor) {
+        CompletableFuture<Void> drain;
+
+        synchronized (this) {
+            draining = true;
+            replacement = newTarget;
+
+            if (scheduledDeploymentFuture != null) {
+                scheduledDeploymentFuture.cancel(false);
+            }
+
+            newTarget.deploymentExecutor.suspend();
+
+            // If this target is itself still waiting for the target it replaced, that one has to be drained first
+            drain = predecessorDrain.whenCompleteAsync((result, error) -> doDrain(newTarget, timeout), executor);
+
+            newTarget.setPredecessorDrain(drain);
+        }
+
+        return drain.whenComplete((result, error) -> newTarget.deploymentExecutor.resume());
+    }
+
+    /**
+     * Waits for the current deployment to finish, moves the pending deployments to the new target and closes this target.
+     */
+    protected void doDrain(TargetImpl newTarget, long timeout) {
+        MDC.put(DeploymentConstants.TARGET_ID_MDC_KEY, getId());
+
+        try {
+            logger.info("Draining target '{}'...", getId());
+
+            // No deployment can start after the draining flag is set, so the current deployment is the last one run by this
+            // target
+            waitForCurrentDeployment(timeout);
+
+            List<DeploymentTask> tasks = new ArrayList<>();
+
+            synchronized (this) {
+                for (DeploymentTask task : pendingDeployments) {
+                    // The task could already have been handed over to the shared executor, so closing this target would
+                    // still cancel it
+                    task.moved = true;
+
+                    deploymentExecutor.remove(task);
+                    tasks.add(task);
+                }
+
+                // The places in the shared queue are handed over to the new target with the deployments
+                pendingDeployments.clear();
+            }
+
+            if (!tasks.isEmpty()) {
+                logger.info("Moving {} pending deployment(s) of target '{}' to the reloaded target", tasks.size(), getId());
+
+                newTarget.adoptDeployments(tasks);
+            }
+        } finally {
+            MDC.remove(DeploymentConstants.TARGET_ID_MDC_KEY);
+        }
+
+        close();
+    }
+
+    protected synchronized void setPredecessorDrain(CompletableFuture<Void> predecessorDrain) {
+        this.predecessorDrain = predecessorDrain;
+    }
+
+    /**
+     * Queues deployments that were pending in the target this target replaces. The deployments already hold their place in the
+     * shared queue, so they're never rejected, and they keep their order relative to the deployments forwarded to this target
+     * while the old target was being drained. If this target has also been replaced in the meantime, the deployments are
+     * handed over to its replacement.
+     */
+    protected synchronized void adoptDeployments(List<DeploymentTask> tasks) {
+        if (replacement != null) {
+            replacement.adoptDeployments(tasks);
+            return;
+        }
+
+        for (DeploymentTask oldTask : tasks) {
+            Deployment deployment = oldTask.getDeployment();
+            DeploymentTask task = new DeploymentTask(deployment, oldTask.getRank(), oldTask.getSequence());
+            pendingDeployments.add(task);
+
+            try {
+                deploymentExecutor.execute(task);
+            } catch (RuntimeException e) {
+                removePendingDeployment(task);
+
+                deployment.getDoneFuture().cancel(false);
+
+                logger.error("Unable to move deployment " + deployment.getId() + " to target '" + getId() + "'", e);
+            }
+        }
+    }
+
+    protected void waitForCurrentDeployment(long timeout) {
+        Deployment deployment = currentDeployment;
+        if (deployment == null) {
+            return;
+        }
+
+        logger.info("Waiting up to {} ms for current deployment of target '{}' to finish...", timeout, getId());
+
+        try {
+            try {
+                deployment.getDoneFuture().get(timeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                logger.warn("Current deployment of target '{}' didn't finish in {} ms. Cancelling it...", getId(), timeout);
+
+                cancelCurrentDeployment();
+
+                // The cancellation is cooperative, so give the current processor the same time to return
+                deployment.getDoneFuture().get(timeout, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException | TimeoutException e) {
+            logger.warn("Current deployment of target '{}' didn't finish normally while draining", getId());
+        }
+    }
+
     @Override
     public void close() {
         MDC.put(DeploymentConstants.TARGET_ID_MDC_KEY, getId());
@@ -174,16 +868,18 @@ public class TargetImpl implements Target {
         try {
             logger.info("Closing target '{}'...", getId());
 
-            if (scheduledDeploymentFuture != null) {
-                scheduledDeploymentFuture.cancel(true);
+            synchronized (this) {
+                if (scheduledDeploymentFuture != null) {
+                    scheduledDeploymentFuture.cancel(true);
+                }
             }
 
             deploymentExecutor.shutdownNow();
 
-            deploymentPipeline.destroy();
+            synchronized (activationLock) {
+                activator = null;
 
-            if (applicationContext != null) {
-                applicationContext.close();
+                destroyResources();
             }
         } catch (Exception e) {
             logger.error("Failed to close '" + getId() + "'", e);
@@ -199,28 +895,146 @@ public class TargetImpl implements Target {
         @Override
         public void run() {
             if (future == null || future.isDone()) {
-                pendingDeployments.add(new Deployment(TargetImpl.this));
+                if (scheduledDeploymentLimiter != null && !scheduledDeploymentLimiter.tryAcquire()) {
+                    logger.debug("Max number of concurrent scheduled deployments reached. Scheduled deployment of target '{}' " +
+                                 "skipped", getId());
+
+                    return;
+                }
+
+                DeploymentTask task;
+                try {
+                    task = enqueueDeployment(Deployment.Priority.SCHEDULED, Collections.emptyMap());
+                } catch (DeploymentQueueFullException e) {
+                    logger.debug("Scheduled deployment of target '{}' skipped: {}", getId(), e.getMessage());
+
+                    if (scheduledDeploymentLimiter != null) {
+                        scheduledDeploymentLimiter.release();
+                    }
+
+                    return;
+                }
+
+                // Use the done future, which is also completed if the deployment is moved to a replacement target
+                CompletableFuture<Deployment> doneFuture = task.getDeployment().getDoneFuture();
+
+                if (scheduledDeploymentLimiter != null) {
+                    doneFuture.whenComplete((deployment, e) -> scheduledDeploymentLimiter.release());
+                }
 
-                future = deploymentExecutor.submit(new DeploymentTask());
+                doneFuture.thenAccept(TargetImpl.this::adjustScheduledDeploymentInterval);
+
+                future = doneFuture;
             }
         }
 
     }
 
-    protected class DeploymentTask implements Runnable {
+    /**
+     * Task of a pending deployment. The rank puts each priority class below the highest only a fixed amount of time (the aging
+     * interval) behind the class above it, so a low priority deployment is only overtaken by higher priority deployments
+     * requested within that time, and is never starved.
+     */
+    protected class DeploymentTask extends ListenableFutureTask<Deployment> implements PriorityTask {
+
+        protected final Deployment deployment;
+        protected final long rank;
+        protected final long sequence;
+        protected volatile boolean moved;
+
+        public DeploymentTask(Deployment deployment) {
+            this(deployment, System.currentTimeMillis() + deployment.getPriority().ordinal() * deploymentPriorityAgingInterval,
+                 deploymentSequence.incrementAndGet());
+        }
+
+        public DeploymentTask(Deployment deployment, long rank, long sequence) {
+            super(new DeploymentRunner(), deployment);
+
+            this.deployment = deployment;
+            this.rank = rank;
+            this.sequence = sequence;
+        }
+
+        public Deployment getDeployment() {
+            return deployment;
+        }
+
+        @Override
+        public long getRank() {
+            return rank;
+        }
+
+        @Override
+        public long getSequence() {
+            return sequence;
+        }
 
         @Override
         public void run() {
-            currentDeployment = pendingDeployments.remove();
+            if (!startDeployment(this)) {
+                return;
+            }
+
+            try {
+                super.run();
+            } finally {
+                currentDeployment = null;
+            }
+        }
+
+        @Override
+        protected void done() {
+            super.done();
+
+            if (moved) {
+                // The deployment now belongs to the replacement target, which completes it
+                return;
+            }
 
+            lastActivityTime = System.currentTimeMillis();
+
+            // Release the place in the queue of deployments that were discarded before starting
+            removePendingDeployment(this);
+
+            // Keep the last completed deployments so that they can still be looked up by ID
+            completedDeployments.addFirst(deployment);
+            while (completedDeployments.size() > MAX_COMPLETED_DEPLOYMENTS) {
+                completedDeployments.pollLast();
+            }
+
+            if (isCancelled()) {
+                deployment.getDoneFuture().cancel(false);
+            } else {
+                deployment.getDoneFuture().complete(deployment);
+            }
+        }
+
+    }
+
+    protected class DeploymentRunner implements Runnable {
+
+        @Override
+        public void run() {
             MDC.put(DeploymentConstants.TARGET_ID_MDC_KEY, getId());
 
             try {
+                DeploymentPipeline pipeline;
+                try {
+                    pipeline = activate();
+                } catch (DeployerException | RuntimeException e) {
+                    logger.error("Unable to activate target '" + getId() + "'", e);
+
+                    currentDeployment.start();
+                    currentDeployment.end(Deployment.Status.FAILURE);
+
+                    return;
+                }
+
                 logger.info("------------------------------------------------------------");
                 logger.info("Deployment for {} started", getId());
                 logger.info("------------------------------------------------------------");
 
-                deploymentPipeline.execute(currentDeployment);
+                pipeline.execute(currentDeployment);
 
                 double durationInSecs = currentDeployment.getDuration() / 1000.0;
 
@@ -228,8 +1042,6 @@ public class TargetImpl implements Target {
                 logger.info("Deployment for {} finished in {} secs", getId(), String.format("%.3f", durationInSecs));
                 logger.info("------------------------------------------------------------");
             } finally {
-                currentDeployment = null;
-
                 MDC.remove(DeploymentConstants.TARGET_ID_MDC_KEY);
             }
         }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.craftercms.deployer.api.Target;
+
+/**
+ * Registry of the loaded targets, indexed by target ID and by configuration file, so that lookups are done in constant time
+ * and without locking. Callers are expected to serialize the changes of the same target (e.g. by locking on its configuration
+ * file), but changes of different targets can be done concurrently.
+ *
+ * @author avasquez
+ */
+public class TargetRegistry {
+
+    protected ConcurrentMap<String, Target> targetsById;
+    protected ConcurrentMap<File, Target> targetsByConfigFile;
+
+    public TargetRegistry() {
+        targetsById = new ConcurrentHashMap<>();
+        targetsByConfigFile = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the target with the specified ID, or null if there's no such target.
+     */
+    public Target getById(String id) {
+        return targetsById.get(id);
+    }
+
+    /**
+     * Returns the target loaded from the specified configuration file, or null if there's no such target.
+     */
+    public Target getByConfigFile(File configFile) {
+        return targetsByConfigFile.get(configFile);
+    }
+
+    /**
+     * Returns a snapshot of all the targets.
+     */
+    public List<Target> getAll() {
+        return new ArrayList<>(targetsById.values());
+    }
+
+    /**
+     * Returns true if there are no targets.
+     */
+    public boolean isEmpty() {
+        return targetsById.isEmpty();
+    }
+
+    /**
+     * Adds the target, replacing any target with the same ID or configuration file.
+     */
+    public void add(Target target) {
+        Target previous = targetsById.put(target.getId(), target);
+        if (previous != null && previous != target) {
+            targetsByConfigFile.remove(previous.getConfigurationFile(), previous);
+        }
+
+        previous = targetsByConfigFile.put(target.getConfigurationFile(), target);
+        if (previous != null && previous != target) {
+            targetsById.remove(previous.getId(), previous);
+        }
+    }
+
+    /**
+     * Removes the target, if it's still registered.
+     *
+     * @return true if the target was removed, false otherwise
+     */
+    public boolean remove(Target target) {
+        boolean removed = targetsById.remove(target.getId(), target);
+        targetsByConfigFile.remove(target.getConfigurationFile(), target);
+
+        return removed;
+    }
+
+}
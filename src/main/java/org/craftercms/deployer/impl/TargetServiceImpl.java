@@ -27,20 +27,33 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.configuration2.CombinedConfiguration;
+import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.tree.OverrideCombiner;
 import org.apache.commons.io.FileUtils;
@@ -52,6 +65,8 @@ import org.craftercms.commons.validation.ValidationException;
 import org.craftercms.commons.validation.ValidationResult;
 import org.craftercms.deployer.api.DeploymentPipeline;
 import org.craftercms.deployer.api.Target;
+import org.craftercms.deployer.api.TargetCreationRequest;
+import org.craftercms.deployer.api.TargetOperationResult;
 import org.craftercms.deployer.api.TargetService;
 import org.craftercms.deployer.api.exceptions.DeployerConfigurationException;
 import org.craftercms.deployer.api.exceptions.DeployerException;
@@ -59,10 +74,14 @@ import org.craftercms.deployer.api.exceptions.TargetAlreadyExistsException;
 import org.craftercms.deployer.api.exceptions.TargetNotFoundException;
 import org.craftercms.deployer.api.exceptions.TargetServiceException;
 import org.craftercms.deployer.utils.ConfigUtils;
+import org.craftercms.deployer.utils.ConfigurationSnapshot;
 import org.craftercms.deployer.utils.handlebars.MissingValueHelper;
+import org.craftercms.deployer.utils.scheduling.AdaptiveIntervalTrigger;
+import org.craftercms.deployer.utils.scheduling.StaggeredCronTrigger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -73,18 +92,28 @@ import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.core.env.MutablePropertySources;
 import org.springframework.core.io.Resource;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
 import org.xml.sax.InputSource;
 
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_DEPLOYMENT_COALESCING_ENABLED_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_DEPLOYMENT_PIPELINE_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_DEPLOYMENT_QUEUE_CAPACITY_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_DEPLOYMENT_QUEUE_FULL_POLICY_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_ENV_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_ID_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SCHEDULED_DEPLOYMENT_ADAPTIVE_ENABLED_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SCHEDULED_DEPLOYMENT_ADAPTIVE_MAX_INTERVAL_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SCHEDULED_DEPLOYMENT_ADAPTIVE_MIN_INTERVAL_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SCHEDULED_DEPLOYMENT_CRON_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SCHEDULED_DEPLOYMENT_ENABLED_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SITE_NAME_CONFIG_KEY;
 
 /**
- * Default implementation of {@link TargetService}.
+ * Default implementation of {@link TargetService}. Targets are loaded in parallel, and each one is published (and can be
+ * deployed) as soon as it's loaded.
  *
  * @author avasquez
  */
@@ -101,6 +130,10 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
     public static final String TARGET_SITE_NAME_MODEL_KEY = "site_name";
     public static final String TARGET_ID_MODEL_KEY = "target_id";
 
+    public static final int TIMING_REPORT_SLOWEST_TARGETS = 5;
+    public static final long MAX_IDLE_TARGET_CHECK_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    public static final int TARGET_LOCK_STRIPES = 64;
+
     protected File targetConfigFolder;
     protected Resource baseTargetYamlConfigResource;
     protected Resource baseTargetYamlConfigOverrideResource;
@@ -111,8 +144,22 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
     protected ApplicationContext mainApplicationContext;
     protected DeploymentPipelineFactory deploymentPipelineFactory;
     protected TaskScheduler taskScheduler;
+    protected Executor deploymentExecutor;
+    protected Executor targetLoadingExecutor;
+    protected Executor targetDrainExecutor;
+    protected boolean staggeredScheduledDeployments;
+    protected Semaphore scheduledDeploymentLimiter;
+    protected long deploymentPriorityAgingInterval;
+    protected Semaphore pendingDeploymentLimiter;
+    protected boolean lazyTargetActivation;
+    protected long targetIdleTimeout;
+    protected long targetReloadDrainTimeout;
+    protected ScheduledFuture<?> idleTargetDeactivationFuture;
+    protected volatile String baseConfigFingerprint;
     protected ProcessedCommitsStore processedCommitsStore;
-    protected Set<Target> loadedTargets;
+    protected BaseTargetConfigCache baseTargetConfigCache;
+    protected TargetRegistry loadedTargets;
+    protected Object[] targetLocks;
 
     public TargetServiceImpl(
         @Value("${deployer.main.targets.config.folderPath}") File targetConfigFolder,
@@ -121,10 +168,20 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         @Value("${deployer.main.targets.config.baseContext.location}") Resource baseTargetContextResource,
         @Value("${deployer.main.targets.config.baseContext.overrideLocation}") Resource baseTargetContextOverrideResource,
         @Value("${deployer.main.targets.config.templates.default}") String defaultTargetConfigTemplateName,
+        @Value("${deployer.main.deployments.scheduling.staggered}") boolean staggeredScheduledDeployments,
+        @Value("${deployer.main.deployments.scheduling.maxConcurrent}") int maxConcurrentScheduledDeployments,
+        @Value("${deployer.main.deployments.priority.agingInterval}") long deploymentPriorityAgingInterval,
+        @Value("${deployer.main.deployments.queue.capacity}") int maxPendingDeployments,
+        @Value("${deployer.main.targets.activation.lazy}") boolean lazyTargetActivation,
+        @Value("${deployer.main.targets.activation.idleTimeout}") long targetIdleTimeout,
+        @Value("${deployer.main.targets.reload.drainTimeout}") long targetReloadDrainTimeout,
         @Autowired Handlebars targetConfigTemplateEngine,
         @Autowired ApplicationContext mainApplicationContext,
         @Autowired DeploymentPipelineFactory deploymentPipelineFactory,
         @Autowired TaskScheduler taskScheduler,
+        @Autowired @Qualifier("deploymentExecutor") Executor deploymentExecutor,
+        @Autowired @Qualifier("targetLoadingExecutor") Executor targetLoadingExecutor,
+        @Autowired @Qualifier("targetDrainExecutor") Executor targetDrainExecutor,
         @Autowired ProcessedCommitsStore processedCommitsStore) throws IOException {
         this.targetConfigFolder = targetConfigFolder;
         this.baseTargetYamlConfigResource = baseTargetYamlConfigResource;
@@ -132,12 +189,29 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         this.baseTargetContextResource = baseTargetContextResource;
         this.baseTargetContextOverrideResource = baseTargetContextOverrideResource;
         this.defaultTargetConfigTemplateName = defaultTargetConfigTemplateName;
+        this.staggeredScheduledDeployments = staggeredScheduledDeployments;
+        this.scheduledDeploymentLimiter = maxConcurrentScheduledDeployments > 0 ? new Semaphore(maxConcurrentScheduledDeployments) : null;
+        this.deploymentPriorityAgingInterval = deploymentPriorityAgingInterval;
+        this.pendingDeploymentLimiter = maxPendingDeployments > 0 ? new Semaphore(maxPendingDeployments) : null;
+        this.lazyTargetActivation = lazyTargetActivation;
+        this.targetIdleTimeout = targetIdleTimeout;
+        this.targetReloadDrainTimeout = targetReloadDrainTimeout;
         this.targetConfigTemplateEngine = targetConfigTemplateEngine;
         this.mainApplicationContext = mainApplicationContext;
         this.deploymentPipelineFactory = deploymentPipelineFactory;
         this.taskScheduler = taskScheduler;
+        this.deploymentExecutor = deploymentExecutor;
+        this.targetLoadingExecutor = targetLoadingExecutor;
+        this.targetDrainExecutor = targetDrainExecutor;
         this.processedCommitsStore = processedCommitsStore;
-        this.loadedTargets = new HashSet<>();
+        this.baseTargetConfigCache = new BaseTargetConfigCache(baseTargetYamlConfigResource, baseTargetYamlConfigOverrideResource,
+                                                               baseTargetContextResource, baseTargetContextOverrideResource);
+        this.loadedTargets = new TargetRegistry();
+        this.targetLocks = new Object[TARGET_LOCK_STRIPES];
+
+        for (int i = 0; i < targetLocks.length; i++) {
+            targetLocks[i] = new Object();
+        }
     }
 
     @PostConstruct
@@ -151,6 +225,11 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
                 throw new DeployerException("Failed to create target config folder at " + targetConfigFolder);
             }
         }
+
+        if (lazyTargetActivation && targetIdleTimeout > 0) {
+            idleTargetDeactivationFuture = taskScheduler.scheduleWithFixedDelay(
+                this::deactivateIdleTargets, Math.min(targetIdleTimeout, MAX_IDLE_TARGET_CHECK_INTERVAL));
+        }
     }
 
     @Override
@@ -165,39 +244,149 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
 
     @PreDestroy
     public void destroy() {
+        if (idleTargetDeactivationFuture != null) {
+            idleTargetDeactivationFuture.cancel(false);
+        }
+
         logger.info("Closing all targets...");
 
-        if (CollectionUtils.isNotEmpty(loadedTargets)) {
-            loadedTargets.forEach(Target::close);
-        }
+        loadedTargets.getAll().forEach(Target::close);
     }
 
     @Override
     public synchronized List<Target> resolveTargets() throws TargetServiceException {
         Collection<File> configFiles = getTargetConfigFiles();
-        List<Target> targets = new ArrayList<>();
+
+        // All targets are checked anyway, so just keep track of the base configuration for the incremental scans
+        checkBaseConfigChanged();
 
         if (CollectionUtils.isNotEmpty(configFiles)) {
             closeTargetsWithNoConfigFile(configFiles);
 
-            for (File file : configFiles) {
-                Target target = resolveTargetFromConfigFile(file);
-                targets.add(target);
+            return resolveTargetsFromConfigFiles(configFiles);
+        } else {
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public synchronized List<Target> resolveTargets(Collection<File> changedFiles) throws TargetServiceException {
+        Set<File> configFiles = new LinkedHashSet<>();
+
+        // The base configuration isn't in the target config folder, so check it each time since it affects all targets
+        if (checkBaseConfigChanged()) {
+            logger.info("Base target configuration has changed. All targets will be checked for reload");
+
+            loadedTargets.getAll().forEach(target -> configFiles.add(target.getConfigurationFile()));
+        }
+
+        for (File file : changedFiles) {
+            File configFile = getConfigFileForChangedFile(file);
+
+            if (configFile != null) {
+                if (configFile.exists()) {
+                    configFiles.add(configFile);
+                } else {
+                    closeTargetWithNoConfigFile(configFile);
+                }
             }
         }
 
+        if (!configFiles.isEmpty()) {
+            return resolveTargetsFromConfigFiles(configFiles);
+        } else {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Updates the fingerprint of the base target configuration.
+     *
+     * @return true if the base configuration changed since the last check, false otherwise
+     */
+    protected boolean checkBaseConfigChanged() throws TargetServiceException {
+        String previousFingerprint = baseConfigFingerprint;
+
+        try {
+            baseConfigFingerprint = baseTargetConfigCache.getFingerprint();
+        } catch (DeployerConfigurationException e) {
+            throw new TargetServiceException("Unable to check base target configuration for changes", e);
+        }
+
+        return previousFingerprint != null && !previousFingerprint.equals(baseConfigFingerprint);
+    }
+
+    /**
+     * Resolves the targets of the config files in parallel, in the target loading executor. A failure while loading a target
+     * only affects the target of that config file.
+     */
+    protected List<Target> resolveTargetsFromConfigFiles(Collection<File> configFiles) {
+        List<Target> targets = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        Map<File, CompletableFuture<Long>> resolutions = new LinkedHashMap<>();
+        Map<File, Target> resolvedTargets = new ConcurrentHashMap<>();
+
+        for (File file : configFiles) {
+            resolutions.put(file, CompletableFuture.supplyAsync(() -> {
+                long resolutionStart = System.currentTimeMillis();
+
+                try {
+                    resolvedTargets.put(file, resolveTargetFromConfigFile(file));
+                } catch (TargetServiceException e) {
+                    throw new CompletionException(e);
+                }
+
+                return System.currentTimeMillis() - resolutionStart;
+            }, targetLoadingExecutor));
+        }
+
+        Map<File, Long> resolutionTimes = new HashMap<>();
+        int failures = 0;
+
+        for (Map.Entry<File, CompletableFuture<Long>> resolution : resolutions.entrySet()) {
+            File file = resolution.getKey();
+
+            try {
+                resolutionTimes.put(file, resolution.getValue().join());
+                targets.add(resolvedTargets.get(file));
+            } catch (CompletionException e) {
+                failures++;
+
+                logger.error("Failed to resolve target for config file " + file, e.getCause());
+            }
+        }
+
+        logTimingReport(resolutionTimes, failures, System.currentTimeMillis() - start);
+
         return targets;
     }
 
+    /**
+     * Returns the target YAML config file that corresponds to the changed file, or null if the file isn't a target YAML config
+     * file or a target application context file.
+     */
+    protected File getConfigFileForChangedFile(File file) {
+        String filename = file.getName();
+        String contextFileSuffix = String.format(APPLICATION_CONTEXT_FILENAME_FORMAT, "");
+
+        if (filename.endsWith(contextFileSuffix)) {
+            filename = StringUtils.removeEnd(filename, contextFileSuffix) + "." + YAML_FILE_EXTENSION;
+        }
+
+        File configFile = new File(targetConfigFolder, filename);
+
+        return new CustomConfigFileFilter().accept(configFile) ? configFile : null;
+    }
+
     @Override
     public List<Target> getAllTargets() throws TargetServiceException {
-        return new ArrayList<>(loadedTargets);
+        return loadedTargets.getAll();
     }
 
     @Override
-    public synchronized Target getTarget(String env, String siteName) throws TargetNotFoundException {
+    public Target getTarget(String env, String siteName) throws TargetNotFoundException {
         String id = TargetImpl.getId(env, siteName);
-        Target target = findLoadedTargetById(id);
+        Target target = loadedTargets.getById(id);
 
         if (target != null) {
             return target;
@@ -207,31 +396,123 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
     }
 
     @Override
-    public synchronized Target createTarget(String env, String siteName, boolean replace, String templateName,
-                                            Map<String, Object> templateParams) throws TargetAlreadyExistsException,
+    public Target createTarget(String env, String siteName, boolean replace, String templateName,
+                               Map<String, Object> templateParams) throws TargetAlreadyExistsException,
         TargetServiceException {
         String id = TargetImpl.getId(env, siteName);
         File configFile = new File(targetConfigFolder, id + "." + YAML_FILE_EXTENSION);
 
-        if (!replace && configFile.exists()) {
-            throw new TargetAlreadyExistsException(id);
-        } else {
-            createConfigFromTemplate(env, siteName, id, templateName, templateParams, configFile);
+        synchronized (getTargetLock(configFile)) {
+            if (!replace && configFile.exists()) {
+                throw new TargetAlreadyExistsException(id);
+            } else {
+                createConfigFromTemplate(env, siteName, id, templateName, templateParams, configFile);
+            }
+
+            return resolveTargetFromConfigFile(configFile);
         }
+    }
+
+    @Override
+    public List<TargetOperationResult> createTargets(List<TargetCreationRequest> requests) throws TargetServiceException {
+        long start = System.currentTimeMillis();
+        TargetOperationResult[] results = new TargetOperationResult[requests.size()];
+        Map<Integer, File> configFiles = new LinkedHashMap<>();
+
+        // Writing the configs is fast, so do it first for all targets, and then load the targets in parallel
+        for (int i = 0; i < requests.size(); i++) {
+            TargetCreationRequest request = requests.get(i);
+            String id = TargetImpl.getId(request.getEnv(), request.getSiteName());
+            File configFile = new File(targetConfigFolder, id + "." + YAML_FILE_EXTENSION);
+
+            try {
+                synchronized (getTargetLock(configFile)) {
+                    if (!request.isReplace() && configFile.exists()) {
+                        throw new TargetAlreadyExistsException(id);
+                    }
+
+                    createConfigFromTemplate(request.getEnv(), request.getSiteName(), id, request.getTemplateName(),
+                                             request.getTemplateParams(), configFile);
+                }
+
+                configFiles.put(i, configFile);
+            } catch (DeployerException e) {
+                logger.error("Failed to create configuration of target '" + id + "'", e);
+
+                results[i] = TargetOperationResult.failure(request.getEnv(), request.getSiteName(), e.getMessage());
+            }
+        }
+
+        Map<Integer, CompletableFuture<Target>> resolutions = new LinkedHashMap<>();
+
+        for (Map.Entry<Integer, File> entry : configFiles.entrySet()) {
+            File configFile = entry.getValue();
+
+            resolutions.put(entry.getKey(), CompletableFuture.supplyAsync(() -> {
+                try {
+                    return resolveTargetFromConfigFile(configFile);
+                } catch (TargetServiceException e) {
+                    throw new CompletionException(e);
+                }
+            }, targetLoadingExecutor));
+        }
+
+        for (Map.Entry<Integer, CompletableFuture<Target>> resolution : resolutions.entrySet()) {
+            TargetCreationRequest request = requests.get(resolution.getKey());
+
+            try {
+                resolution.getValue().join();
 
-        return resolveTargetFromConfigFile(configFile);
+                results[resolution.getKey()] = TargetOperationResult.success(request.getEnv(), request.getSiteName());
+            } catch (CompletionException e) {
+                logger.error("Failed to load target for config file " + configFiles.get(resolution.getKey()), e.getCause());
+
+                results[resolution.getKey()] = TargetOperationResult.failure(request.getEnv(), request.getSiteName(),
+                                                                             e.getCause().getMessage());
+            }
+        }
+
+        long created = Arrays.stream(results).filter(TargetOperationResult::isSuccess).count();
+
+        logger.info("{} of {} target(s) created in {} ms", created, requests.size(), System.currentTimeMillis() - start);
+
+        return Arrays.asList(results);
     }
 
     @Override
-    public synchronized void deleteTarget(String env, String siteName) throws TargetNotFoundException, TargetServiceException {
-        Target target = getTarget(env, siteName);
+    public void deleteTarget(String env, String siteName) throws TargetNotFoundException, TargetServiceException {
+        String id = TargetImpl.getId(env, siteName);
+
+        while (true) {
+            File configFile = getTarget(env, siteName).getConfigurationFile();
+
+            synchronized (getTargetLock(configFile)) {
+                // Look up the target again, since it could have been reloaded (or removed) before the lock was taken
+                Target target = loadedTargets.getById(id);
+                if (target == null) {
+                    throw new TargetNotFoundException(id);
+                }
+
+                if (target.getConfigurationFile().equals(configFile)) {
+                    deleteTarget(target);
+
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the target, closes it and deletes its files. Should be called while holding the lock of its config file.
+     */
+    protected void deleteTarget(Target target) throws TargetServiceException {
         String id = target.getId();
 
-        target.close();
+        loadedTargets.remove(target);
 
         logger.info("Removing loaded target '{}'", id);
 
-        loadedTargets.remove(target);
+        target.close();
 
         try {
             processedCommitsStore.delete(id);
@@ -239,14 +520,16 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
             throw new TargetServiceException("Error while deleting processed commit from store for target '" + id + "'", e);
         }
 
-        File configFile =  target.getConfigurationFile();
+        // Delete the files while holding the lock, so that a concurrent scan doesn't load the target again
+        File configFile = target.getConfigurationFile();
         if (configFile.exists()) {
             logger.info("Deleting target configuration file at {}", configFile);
 
             FileUtils.deleteQuietly(configFile);
         }
 
-        File contextFile = new File(targetConfigFolder, String.format(APPLICATION_CONTEXT_FILENAME_FORMAT, configFile.getName()));
+        File contextFile = new File(targetConfigFolder, String.format(APPLICATION_CONTEXT_FILENAME_FORMAT,
+                                                                      configFile.getName()));
         if (contextFile.exists()) {
             logger.info("Deleting target context file at {}", contextFile);
 
@@ -276,73 +559,177 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         }
     }
 
-    protected void closeTargetsWithNoConfigFile(Collection<File> configFiles) {
-        if (CollectionUtils.isNotEmpty(loadedTargets)) {
-            loadedTargets.removeIf(target -> {
-                File configFile = target.getConfigurationFile();
-                if (!configFiles.contains(configFile)) {
-                    logger.info("Config file {} doesn't exist anymore for target '{}'. Closing target...", configFile);
+    protected void logTimingReport(Map<File, Long> resolutionTimes, int failures, long totalTime) {
+        logger.info("{} target(s) resolved in {} ms ({} failed)", resolutionTimes.size(), totalTime, failures);
 
-                    target.close();
+        // Report the slowest targets, which are the ones that delay the deployer from being fully available
+        resolutionTimes.entrySet().stream()
+                       .sorted(Map.Entry.<File, Long>comparingByValue(Comparator.reverseOrder()))
+                       .limit(TIMING_REPORT_SLOWEST_TARGETS)
+                       .forEach(entry -> logger.info("Config file {} resolved in {} ms", entry.getKey(), entry.getValue()));
+    }
 
-                    return true;
-                } else {
-                    return false;
-                }
-            });
+    protected void closeTargetWithNoConfigFile(File configFile) {
+        synchronized (getTargetLock(configFile)) {
+            Target target = loadedTargets.getByConfigFile(configFile);
+            if (target != null && !configFile.exists()) {
+                logger.info("Config file {} doesn't exist anymore for target '{}'. Closing target...", configFile,
+                            target.getId());
+
+                target.close();
+
+                loadedTargets.remove(target);
+            }
         }
     }
 
+    protected void closeTargetsWithNoConfigFile(Collection<File> configFiles) {
+        Set<File> existingConfigFiles = new HashSet<>(configFiles);
+
+        for (Target target : loadedTargets.getAll()) {
+            File configFile = target.getConfigurationFile();
+            if (!existingConfigFiles.contains(configFile)) {
+                closeTargetWithNoConfigFile(configFile);
+            }
+        }
+    }
+
+    /**
+     * Returns the lock used to serialize the changes of the target loaded from the specified configuration file. The locks
+     * are a fixed set of stripes, so different targets rarely block each other and no lock is kept per config file.
+     */
+    protected Object getTargetLock(File configFile) {
+        return targetLocks[Math.floorMod(configFile.hashCode(), targetLocks.length)];
+    }
+
     protected Target resolveTargetFromConfigFile(File configFile) throws TargetServiceException {
+        synchronized (getTargetLock(configFile)) {
+            return doResolveTargetFromConfigFile(configFile);
+        }
+    }
+
+    /**
+     * Returns the target of the config file, loading it if it's new or if the content of its effective configuration (the target
+     * YAML configuration and application context, plus the base ones) has changed, which is detected through a fingerprint of
+     * the content instead of the last modified dates of the files. A changed target is created alongside the old one, which
+     * keeps running if the new target can't be created, and is otherwise replaced through {@link #replaceTarget(Target, Target)}.
+     */
+    protected Target doResolveTargetFromConfigFile(File configFile) throws TargetServiceException {
         String baseName = FilenameUtils.getBaseName(configFile.getName());
         File contextFile = new File(targetConfigFolder, String.format(APPLICATION_CONTEXT_FILENAME_FORMAT, baseName));
-        Target target = findLoadedTargetByConfigFile(configFile);
+        Target target = loadedTargets.getByConfigFile(configFile);
+        // Calculated before loading the files, so that a change made while the target loads causes another reload later
+        String fingerprint = getConfigurationFingerprint(configFile, contextFile);
 
         if (target != null) {
-            // Check if the YAML config file or the app context file have changed since target load.
-            long yamlLastModified = configFile.exists() ? configFile.lastModified() : 0;
-            long contextLastModified = contextFile.exists()? contextFile.lastModified() : 0;
-            long targetLoadedDate = target.getLoadDate().toInstant().toEpochMilli();
+            // Refresh only if the content of the effective configuration has changed
+            if (target instanceof TargetImpl && fingerprint.equals(((TargetImpl)target).getConfigurationFingerprint())) {
+                return target;
+            }
+
+            logger.info("Configuration files haven been updated for '{}'. The target will be reloaded.", target.getId());
+        } else {
+            logger.info("No loaded target found for configuration file {}", configFile);
+        }
 
-            // Refresh if the files have been modified.
-            if (yamlLastModified >= targetLoadedDate || contextLastModified >= targetLoadedDate) {
-                logger.info("Configuration files haven been updated for '{}'. The target will be reloaded.", target.getId());
+        logger.info("Loading target for configuration file {}", configFile);
 
-                target.close();
+        // The old target (if any) keeps running while the new target is created
+        TargetImpl newTarget = createTarget(configFile, contextFile);
+        Trigger trigger;
 
-                loadedTargets.remove(target);
+        newTarget.setConfigurationFingerprint(fingerprint);
 
-                target = null;
-            }
+        try {
+            trigger = createScheduledDeploymentTrigger(newTarget);
+        } catch (DeployerConfigurationException e) {
+            newTarget.close();
+
+            throw new TargetServiceException("Failed to create target for configuration file " + configFile, e);
+        }
+
+        if (target != null) {
+            replaceTarget(target, newTarget);
         } else {
-            logger.info("No loaded target found for configuration file {}", configFile);
+            loadedTargets.add(newTarget);
+        }
+
+        // Scheduled deployments only start once the target is published, so they never run alongside the old target's
+        if (trigger != null) {
+            newTarget.scheduleDeployment(taskScheduler, trigger);
+        }
+
+        return newTarget;
+    }
+
+    /**
+     * Replaces the old target with the new target in the loaded targets. The old target is drained into the new one in the
+     * background, so its current deployment is allowed to finish without holding the target locks, and its pending deployments
+     * are run by the new target.
+     */
+    protected void replaceTarget(Target oldTarget, Target newTarget) {
+        if (oldTarget instanceof TargetImpl && newTarget instanceof TargetImpl) {
+            // Returns right away, once the old target forwards its deployments and the new target holds them until the drain ends
+            ((TargetImpl)oldTarget).drainTo((TargetImpl)newTarget, targetReloadDrainTimeout, targetDrainExecutor);
+        } else {
+            oldTarget.close();
         }
 
-        if (target == null) {
-            logger.info("Loading target for configuration file {}", configFile);
+        // Replaces the old target both by config file and by ID (even if the ID changed)
+        loadedTargets.add(newTarget);
+    }
+
+    /**
+     * Returns a fingerprint of the content of the effective configuration of the target: the YAML config file, the application
+     * context file (if it exists) and the base configuration.
+     */
+    protected String getConfigurationFingerprint(File configFile, File contextFile) throws TargetServiceException {
+        try {
+            String fingerprint = baseTargetConfigCache.getFingerprint() + ":" + getContentDigest(configFile) + ":" +
+                                 getContentDigest(contextFile);
+
+            return DigestUtils.md5DigestAsHex(fingerprint.getBytes(StandardCharsets.UTF_8));
+        } catch (DeployerConfigurationException | IOException e) {
+            throw new TargetServiceException("Unable to calculate configuration fingerprint for config file " + configFile, e);
+        }
+    }
 
-            target = createTarget(configFile, contextFile);
-            loadedTargets.add(target);
+    protected String getContentDigest(File file) throws IOException {
+        if (!file.exists()) {
+            return "-";
         }
 
-        return target;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return DigestUtils.md5DigestAsHex(in);
+        }
     }
 
-    protected Target createTarget(File configFile, File contextFile) throws TargetServiceException {
+    protected TargetImpl createTarget(File configFile, File contextFile) throws TargetServiceException {
         try {
-            HierarchicalConfiguration config = loadConfiguration(configFile);
-            String env = ConfigUtils.getRequiredStringProperty(config, TARGET_ENV_CONFIG_KEY);
-            String siteName = ConfigUtils.getRequiredStringProperty(config, TARGET_SITE_NAME_CONFIG_KEY);
+            HierarchicalConfiguration loadedConfig = loadConfiguration(configFile);
+            String env = ConfigUtils.getRequiredStringProperty(loadedConfig, TARGET_ENV_CONFIG_KEY);
+            String siteName = ConfigUtils.getRequiredStringProperty(loadedConfig, TARGET_SITE_NAME_CONFIG_KEY);
             String targetId = TargetImpl.getId(env, siteName);
 
-            config.setProperty(TARGET_ID_CONFIG_KEY, targetId);
+            loadedConfig.setProperty(TARGET_ID_CONFIG_KEY, targetId);
 
-            ConfigurableApplicationContext context = loadApplicationContext(config, contextFile);
-            DeploymentPipeline deploymentPipeline = deploymentPipelineFactory.getPipeline(config, context,
-                                                                                          TARGET_DEPLOYMENT_PIPELINE_CONFIG_KEY);
-            Target target = new TargetImpl(env, siteName, deploymentPipeline, configFile, config, context);
+            // From now on the config is only read, so flatten it to avoid walking the combined node trees on each lookup
+            HierarchicalConfiguration config = new ConfigurationSnapshot(loadedConfig);
 
-            scheduleDeployment(target);
+            TargetImpl target = new TargetImpl(env, siteName, configFile, config, new TargetActivatorImpl(config, contextFile),
+                                               deploymentExecutor);
+            target.setDeploymentCoalescingEnabled(
+                ConfigUtils.getBooleanProperty(config, TARGET_DEPLOYMENT_COALESCING_ENABLED_CONFIG_KEY, false));
+            target.setScheduledDeploymentLimiter(scheduledDeploymentLimiter);
+            target.setDeploymentPriorityAgingInterval(deploymentPriorityAgingInterval);
+            target.setMaxPendingDeployments(
+                ConfigUtils.getIntegerProperty(config, TARGET_DEPLOYMENT_QUEUE_CAPACITY_CONFIG_KEY, 0));
+            target.setQueueFullPolicy(getQueueFullPolicy(config));
+            target.setPendingDeploymentLimiter(pendingDeploymentLimiter);
+
+            if (!lazyTargetActivation) {
+                target.activate();
+            }
 
             return target;
         } catch (Exception e) {
@@ -356,22 +743,15 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         logger.debug("Loading target YAML config at {}", configFilename);
 
         HierarchicalConfiguration config = ConfigUtils.loadYamlConfiguration(configFile);
+        List<HierarchicalConfiguration> baseConfigs = baseTargetConfigCache.getBaseYamlConfigurations();
 
-        if (baseTargetYamlConfigResource.exists() || baseTargetYamlConfigOverrideResource.exists()) {
+        if (!baseConfigs.isEmpty()) {
             CombinedConfiguration combinedConfig = new CombinedConfiguration(new OverrideCombiner());
 
             combinedConfig.addConfiguration(config);
 
-            if (baseTargetYamlConfigOverrideResource.exists()) {
-                logger.debug("Loading base target YAML config override at {}", baseTargetYamlConfigOverrideResource);
-
-                combinedConfig.addConfiguration(ConfigUtils.loadYamlConfiguration(baseTargetYamlConfigOverrideResource));
-            }
-            if (baseTargetYamlConfigResource.exists()) {
-                logger.debug("Loading base target YAML config at {}", baseTargetYamlConfigResource);
-
-                combinedConfig.addConfiguration(ConfigUtils.loadYamlConfiguration(baseTargetYamlConfigResource));
-            }
+            // The base configs are already in order of precedence (override first)
+            baseConfigs.forEach(combinedConfig::addConfiguration);
 
             return combinedConfig;
         } else {
@@ -386,27 +766,12 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         MutablePropertySources propertySources = context.getEnvironment().getPropertySources();
         propertySources.addFirst(new ApacheCommonsConfiguration2PropertySource(CONFIG_PROPERTY_SOURCE_NAME, config));
 
+        // The base bean definitions are parsed only once, and copied into each target's context
+        baseTargetConfigCache.registerBaseBeanDefinitions(context);
+
         XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(context);
         reader.setValidationMode(XmlBeanDefinitionReader.VALIDATION_XSD);
 
-        if (baseTargetContextResource.exists()) {
-            logger.debug("Loading base target application context at {}", baseTargetContextResource);
-
-            try {
-                reader.loadBeanDefinitions(baseTargetContextResource);
-            } catch (Exception e) {
-                throw new DeployerConfigurationException("Failed to load application context at " + baseTargetContextResource, e);
-            }
-        }
-        if (baseTargetContextOverrideResource.exists()) {
-            logger.debug("Loading base target application context override at {}", baseTargetContextOverrideResource);
-
-            try {
-                reader.loadBeanDefinitions(baseTargetContextOverrideResource);
-            } catch (Exception e) {
-                throw new DeployerConfigurationException("Failed to load application context at " + baseTargetContextOverrideResource, e);
-            }
-        }
         if (contextFile.exists()) {
             logger.debug("Loading target application context at {}", contextFile);
 
@@ -422,14 +787,90 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         return context;
     }
 
-    protected void scheduleDeployment(Target target) throws DeployerConfigurationException {
-        boolean enabled =  ConfigUtils.getBooleanProperty(target.getConfiguration(), TARGET_SCHEDULED_DEPLOYMENT_ENABLED_CONFIG_KEY, true);
-        String cron = ConfigUtils.getStringProperty(target.getConfiguration(), TARGET_SCHEDULED_DEPLOYMENT_CRON_CONFIG_KEY);
+    /**
+     * Deactivates the targets that have been idle for longer than the idle timeout, and reports how many targets are active and
+     * inactive, to help with sizing.
+     */
+    protected void deactivateIdleTargets() {
+        int deactivated = 0;
+        int active = 0;
+        int inactive = 0;
+
+        for (Target target : loadedTargets.getAll()) {
+            if (target instanceof TargetImpl && ((TargetImpl)target).deactivateIfIdle(targetIdleTimeout)) {
+                deactivated++;
+            }
+
+            if (target.isActive()) {
+                active++;
+            } else {
+                inactive++;
+            }
+        }
+
+        if (deactivated > 0 || logger.isDebugEnabled()) {
+            String message = String.format("%d idle target(s) deactivated. Active targets: %d, inactive targets: %d",
+                                           deactivated, active, inactive);
+            if (deactivated > 0) {
+                logger.info(message);
+            } else {
+                logger.debug(message);
+            }
+        }
+    }
+
+    protected TargetImpl.QueueFullPolicy getQueueFullPolicy(Configuration config) throws DeployerConfigurationException {
+        String policy = ConfigUtils.getStringProperty(config, TARGET_DEPLOYMENT_QUEUE_FULL_POLICY_CONFIG_KEY,
+                                                      TargetImpl.QueueFullPolicy.REJECT.name());
+        try {
+            return TargetImpl.QueueFullPolicy.valueOf(StringUtils.upperCase(policy));
+        } catch (IllegalArgumentException e) {
+            throw new DeployerConfigurationException("Invalid deployment queue full policy '" + policy + "'", e);
+        }
+    }
+
+    /**
+     * Returns the trigger of the scheduled deployments of the target, or null if scheduled deployments are disabled.
+     */
+    protected Trigger createScheduledDeploymentTrigger(Target target) throws DeployerConfigurationException {
+        Configuration config = target.getConfiguration();
+        boolean enabled =  ConfigUtils.getBooleanProperty(config, TARGET_SCHEDULED_DEPLOYMENT_ENABLED_CONFIG_KEY, true);
+        boolean adaptive = ConfigUtils.getBooleanProperty(config, TARGET_SCHEDULED_DEPLOYMENT_ADAPTIVE_ENABLED_CONFIG_KEY, false);
+        String cron = ConfigUtils.getStringProperty(config, TARGET_SCHEDULED_DEPLOYMENT_CRON_CONFIG_KEY);
+
+        if (enabled && adaptive) {
+            int minInterval = ConfigUtils.getIntegerProperty(config, TARGET_SCHEDULED_DEPLOYMENT_ADAPTIVE_MIN_INTERVAL_CONFIG_KEY, 60);
+            int maxInterval = ConfigUtils.getIntegerProperty(config, TARGET_SCHEDULED_DEPLOYMENT_ADAPTIVE_MAX_INTERVAL_CONFIG_KEY,
+                                                             minInterval);
+
+            if (minInterval <= 0 || maxInterval < minInterval) {
+                throw new DeployerConfigurationException("Invalid adaptive scheduled deployment intervals for target '" +
+                                                         target.getId() + "': min = " + minInterval + ", max = " + maxInterval);
+            }
+
+            logger.info("Deployment for target '{}' scheduled with an adaptive interval between {} and {} secs", target.getId(),
+                        minInterval, maxInterval);
+
+            return new AdaptiveIntervalTrigger(TimeUnit.SECONDS.toMillis(minInterval), TimeUnit.SECONDS.toMillis(maxInterval));
+        } else if (enabled && StringUtils.isNotEmpty(cron)) {
+            Trigger trigger;
 
-        if (enabled && StringUtils.isNotEmpty(cron)) {
-            logger.info("Deployment for target '{}' scheduled with cron {}", target.getId(), cron);
+            if (staggeredScheduledDeployments) {
+                StaggeredCronTrigger staggeredTrigger = new StaggeredCronTrigger(cron, target.getId());
 
-            target.scheduleDeployment(taskScheduler, cron);
+                logger.info("Deployment for target '{}' scheduled with cron {} (staggered by {} ms)", target.getId(), cron,
+                            staggeredTrigger.getOffset());
+
+                trigger = staggeredTrigger;
+            } else {
+                logger.info("Deployment for target '{}' scheduled with cron {}", target.getId(), cron);
+
+                trigger = new CronTrigger(cron);
+            }
+
+            return trigger;
+        } else {
+            return null;
         }
     }
 
@@ -482,20 +923,26 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         }
     }
 
-    protected Target findLoadedTargetByConfigFile(File configFile) {
-        if (CollectionUtils.isNotEmpty(loadedTargets)) {
-            return loadedTargets.stream().filter(target -> target.getConfigurationFile().equals(configFile)).findFirst().orElse(null);
-        } else {
-            return null;
+    protected class TargetActivatorImpl implements TargetActivator {
+
+        protected HierarchicalConfiguration config;
+        protected File contextFile;
+
+        public TargetActivatorImpl(HierarchicalConfiguration config, File contextFile) {
+            this.config = config;
+            this.contextFile = contextFile;
         }
-    }
 
-    protected Target findLoadedTargetById(String id) {
-        if (CollectionUtils.isNotEmpty(loadedTargets)) {
-            return loadedTargets.stream().filter(target -> target.getId().equals(id)).findFirst().orElse(null);
-        } else {
-            return null;
+        @Override
+        public ConfigurableApplicationContext loadApplicationContext() throws DeployerException {
+            return TargetServiceImpl.this.loadApplicationContext(config, contextFile);
+        }
+
+        @Override
+        public DeploymentPipeline createDeploymentPipeline(ConfigurableApplicationContext context) throws DeployerException {
+            return deploymentPipelineFactory.getPipeline(config, context, TARGET_DEPLOYMENT_PIPELINE_CONFIG_KEY);
         }
+
     }
 
     protected class CustomConfigFileFilter extends AbstractFileFilter {
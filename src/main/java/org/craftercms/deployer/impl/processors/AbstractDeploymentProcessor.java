@@ -16,13 +16,19 @@
  */
 package org.craftercms.deployer.impl.processors;
 
+import org.apache.commons.configuration2.Configuration;
+import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.DeploymentProcessor;
+import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.impl.DeploymentConstants;
+import org.craftercms.deployer.utils.ConfigUtils;
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.annotation.Required;
 
 /**
  * Base class for all {@link DeploymentProcessor}s. All processor are expected to be configured as prototypes in Spring, so it's
- * possible to have processor instances per target, and inject target specific properties.
+ * possible to have processor instances per target, and inject target specific properties. The max execution time of each
+ * processor instance can be configured through the YAML configuration property {@code timeout} (in seconds).
  *
  * @author avasquez
  */
@@ -32,6 +38,8 @@ public abstract class AbstractDeploymentProcessor implements DeploymentProcessor
     protected String siteName;
     protected String targetId;
     protected String name;
+    protected long timeout;
+    protected volatile boolean cancelled;
 
     /**
      * Sets the environment of the site.
@@ -65,4 +73,30 @@ public abstract class AbstractDeploymentProcessor implements DeploymentProcessor
         this.name = name;
     }
 
+    @Override
+    public void init(Configuration config) throws DeployerException {
+        timeout = ConfigUtils.getIntegerProperty(config, DeploymentConstants.PROCESSOR_TIMEOUT_CONFIG_KEY, 0) * 1000L;
+
+        doInit(config);
+    }
+
+    @Override
+    public long getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public void cancel(Deployment deployment) {
+        cancelled = true;
+    }
+
+    /**
+     * Returns true if the current execution was cancelled, or the executing thread was interrupted.
+     */
+    protected boolean isCancelled() {
+        return cancelled || Thread.currentThread().isInterrupted();
+    }
+
+    protected abstract void doInit(Configuration config) throws DeployerException;
+
 }
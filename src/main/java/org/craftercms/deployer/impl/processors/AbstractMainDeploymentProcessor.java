@@ -22,6 +22,7 @@ import java.util.Map;
 
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.BooleanUtils;
 import org.craftercms.commons.lang.RegexUtils;
 import org.craftercms.deployer.api.ChangeSet;
 import org.craftercms.deployer.api.Deployment;
@@ -52,11 +53,13 @@ public abstract class AbstractMainDeploymentProcessor extends AbstractDeployment
         includeFiles = ConfigUtils.getStringArrayProperty(config, DeploymentConstants.PROCESSOR_INCLUDE_FILES_CONFIG_KEY);
         excludeFiles = ConfigUtils.getStringArrayProperty(config, DeploymentConstants.PROCESSOR_EXCLUDE_FILES_CONFIG_KEY);
 
-        doInit(config);
+        super.init(config);
     }
 
     @Override
     public void execute(Deployment deployment) {
+        cancelled = false;
+
         ChangeSet filteredChangeSet = getFilteredChangeSet(deployment.getChangeSet());
         
         if (shouldExecute(deployment, filteredChangeSet)) {
@@ -72,12 +75,12 @@ public abstract class AbstractMainDeploymentProcessor extends AbstractDeployment
                     deployment.setChangeSet(processedChangeSet);
                 }
 
-                execution.endExecution(Deployment.Status.SUCCESS);
+                deployment.endProcessorExecution(execution, Deployment.Status.SUCCESS);
             } catch (Exception e) {
                 logger.error("Processor '" + name + "' for target '" + targetId + "' failed", e);
 
                 execution.setStatusDetails(e.toString());
-                execution.endExecution(Deployment.Status.FAILURE);
+                deployment.endProcessorExecution(execution, Deployment.Status.FAILURE);
 
                 if (failDeploymentOnProcessorFailure()) {
                     deployment.end(Deployment.Status.FAILURE);
@@ -124,7 +127,18 @@ public abstract class AbstractMainDeploymentProcessor extends AbstractDeployment
         return deployment.isRunning() && filteredChangeSet != null && !filteredChangeSet.isEmpty();
     }
 
-    protected abstract void doInit(Configuration config) throws DeployerException;
+    protected boolean getReprocessAllFilesParam(Deployment deployment) {
+        Object value = deployment.getParam(DeploymentConstants.REPROCESS_ALL_FILES_PARAM_NAME);
+        if (value != null) {
+            if (value instanceof Boolean) {
+                return (Boolean)value;
+            } else {
+                return BooleanUtils.toBoolean(value.toString());
+            }
+        } else {
+            return false;
+        }
+    }
 
     protected abstract ChangeSet doExecute(Deployment deployment, ProcessorExecution execution,
                                            ChangeSet filteredChangeSet) throws DeployerException;
@@ -35,6 +35,8 @@ public abstract class AbstractPostDeploymentProcessor extends AbstractDeployment
 
     @Override
     public void execute(Deployment deployment) {
+        cancelled = false;
+
         deployment.end(Deployment.Status.SUCCESS);
 
         if (shouldExecute(deployment)) {
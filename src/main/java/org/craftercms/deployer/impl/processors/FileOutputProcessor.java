@@ -64,7 +64,7 @@ public class FileOutputProcessor extends AbstractPostDeploymentProcessor {
     }
 
     @Override
-    public void init(Configuration config) throws DeployerException {
+    protected void doInit(Configuration config) throws DeployerException {
         if (!outputFolder.exists()) {
             try {
                 FileUtils.forceMkdir(outputFolder);
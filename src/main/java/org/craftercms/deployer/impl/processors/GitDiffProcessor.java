@@ -26,11 +26,11 @@ import java.util.Objects;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.lang3.BooleanUtils;
 import org.craftercms.deployer.api.ChangeSet;
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.ProcessorExecution;
 import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.impl.GitRepositoryCache;
 import org.craftercms.deployer.impl.ProcessedCommitsStore;
 import org.craftercms.deployer.utils.GitUtils;
 import org.eclipse.jgit.api.Git;
@@ -50,8 +50,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
 
-import static org.craftercms.deployer.impl.DeploymentConstants.REPROCESS_ALL_FILES_PARAM_NAME;
-
 /**
  * Processor that, based on a previous processed commit that's stored, does a diff with the current commit of the deployment, to
  * find out the change set. If there is no previous processed commit, then the entire repository becomes the change set. This processor
@@ -65,6 +63,7 @@ public class GitDiffProcessor extends AbstractMainDeploymentProcessor {
     private static final Logger logger = LoggerFactory.getLogger(GitDiffProcessor.class);
 
     protected File localRepoFolder;
+    protected GitRepositoryCache repositoryCache;
     protected ProcessedCommitsStore processedCommitsStore;
 
     /**
@@ -75,6 +74,14 @@ public class GitDiffProcessor extends AbstractMainDeploymentProcessor {
         this.localRepoFolder = localRepoFolder;
     }
 
+    /**
+     * Sets the cache that keeps the local repository open between deployments (optional). If not set, the repository is
+     * opened on each deployment.
+     */
+    public void setRepositoryCache(GitRepositoryCache repositoryCache) {
+        this.repositoryCache = repositoryCache;
+    }
+
     /**
      * Sets the store for processed commits.
      */
@@ -109,6 +116,15 @@ public class GitDiffProcessor extends AbstractMainDeploymentProcessor {
 
         try (Git git = openLocalRepository()) {
             ObjectId previousCommitId = processedCommitsStore.load(targetId);
+            if (previousCommitId != null && !git.getRepository().hasObject(previousCommitId)) {
+                // The local repo might have been re-cloned with a limited history (e.g. just a single branch), so the previous
+                // commit can't be diffed against anymore
+                logger.warn("Previous processed commit {} not found in local repo {}. All files will be processed",
+                            previousCommitId.name(), localRepoFolder);
+
+                previousCommitId = null;
+            }
+
             ObjectId latestCommitId = getLatestCommitId(git);
             ChangeSet changeSet = resolveChangeSetFromCommits(git, previousCommitId, latestCommitId);
 
@@ -131,6 +147,10 @@ public class GitDiffProcessor extends AbstractMainDeploymentProcessor {
 
     protected Git openLocalRepository() throws DeployerException {
         try {
+            if (repositoryCache != null) {
+                return repositoryCache.open();
+            }
+
             logger.debug("Opening local Git repository at {}", localRepoFolder);
 
             return GitUtils.openRepository(localRepoFolder);
@@ -255,17 +275,4 @@ public class GitDiffProcessor extends AbstractMainDeploymentProcessor {
         return path;
     }
 
-    protected boolean getReprocessAllFilesParam(Deployment deployment) {
-        Object value = deployment.getParam(REPROCESS_ALL_FILES_PARAM_NAME);
-        if (value != null) {
-            if (value instanceof Boolean) {
-                return (Boolean)value;
-            } else {
-                return BooleanUtils.toBoolean(value.toString());
-            }
-        } else {
-            return false;
-        }
-    }
-
 }
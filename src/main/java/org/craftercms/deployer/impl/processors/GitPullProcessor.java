@@ -27,6 +27,8 @@ import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.ProcessorExecution;
 import org.craftercms.deployer.api.exceptions.DeployerConfigurationException;
 import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.impl.GitRepositoryCache;
+import org.craftercms.deployer.impl.ProcessedCommitsStore;
 import org.craftercms.deployer.utils.ConfigUtils;
 import org.craftercms.deployer.utils.GitUtils;
 import org.craftercms.deployer.utils.git.GitAuthenticationConfigurator;
@@ -37,10 +39,14 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeResult;
 import org.eclipse.jgit.api.RebaseResult;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.merge.MergeStrategy;
 import org.eclipse.jgit.merge.ThreeWayMerger;
+import org.eclipse.jgit.transport.TagOpt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
@@ -78,7 +84,13 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
     private static final Logger logger = LoggerFactory.getLogger(GitPullProcessor.class);
 
     protected File localRepoFolder;
+    protected GitRepositoryCache repositoryCache;
     protected boolean useRebase;
+    protected boolean mirror;
+    protected boolean singleBranchClone;
+    protected boolean fetchTags;
+    protected boolean probeRemote;
+    protected ProcessedCommitsStore processedCommitsStore;
 
     protected String remoteRepoUrl;
     protected String remoteRepoBranch;
@@ -92,6 +104,14 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
         this.localRepoFolder = localRepoFolder;
     }
 
+    /**
+     * Sets the cache that keeps the local repository open between deployments (optional). If not set, the repository is
+     * opened on each deployment.
+     */
+    public void setRepositoryCache(GitRepositoryCache repositoryCache) {
+        this.repositoryCache = repositoryCache;
+    }
+
     /**
      * Sets whether rebase should be used on pull instead of merge.
      */
@@ -99,10 +119,57 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
         this.useRebase = useRebase;
     }
 
+    /**
+     * Sets whether the local repository should just mirror the remote branch: on pull, HEAD and the working tree are reset to
+     * the remote tracking ref of the branch, instead of merging (or rebasing) it. Any local change is lost. Requires the
+     * {@code remoteRepo.branch} to be configured.
+     */
+    public void setMirror(boolean mirror) {
+        this.mirror = mirror;
+    }
+
+    /**
+     * Sets whether only the configured branch should be cloned (and fetched afterwards), instead of all the branches of the
+     * remote repository.
+     */
+    public void setSingleBranchClone(boolean singleBranchClone) {
+        this.singleBranchClone = singleBranchClone;
+    }
+
+    /**
+     * Sets whether the tags that point to the fetched commits should also be fetched on pull.
+     */
+    public void setFetchTags(boolean fetchTags) {
+        this.fetchTags = fetchTags;
+    }
+
+    /**
+     * Sets whether the tip of the remote branch should be checked (by listing the remote refs) before pulling, so that the
+     * deployment can be ended right away when there's nothing new to pull and the current commit was already processed.
+     */
+    public void setProbeRemote(boolean probeRemote) {
+        this.probeRemote = probeRemote;
+    }
+
+    /**
+     * Sets the store for processed commits, used to check if the current commit was already processed when probing the
+     * remote repository.
+     */
+    public void setProcessedCommitsStore(ProcessedCommitsStore processedCommitsStore) {
+        this.processedCommitsStore = processedCommitsStore;
+    }
+
     @Override
     protected void doInit(Configuration config) throws DeployerException {
         remoteRepoUrl = ConfigUtils.getRequiredStringProperty(config, REMOTE_REPO_URL_CONFIG_KEY);
         remoteRepoBranch = ConfigUtils.getStringProperty(config, REMOTE_REPO_BRANCH_CONFIG_KEY);
+
+        if (mirror && StringUtils.isEmpty(remoteRepoBranch)) {
+            // Without a branch there's no single remote tracking ref to mirror
+            throw new DeployerConfigurationException("Property '" + REMOTE_REPO_BRANCH_CONFIG_KEY + "' is required when the " +
+                                                     "processor mirrors the remote repo");
+        }
+
         authenticationConfigurator = createAuthenticationConfigurator(config, remoteRepoUrl);
     }
 
@@ -122,7 +189,19 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
         File gitFolder = new File(localRepoFolder, GIT_FOLDER_NAME);
 
         if (localRepoFolder.exists() && gitFolder.exists()) {
-            doPull(execution);
+            if (probeRemote && !getReprocessAllFilesParam(deployment) && isUpToDate()) {
+                String details = "Local repository " + localRepoFolder + " up to date with remote repo " + remoteRepoUrl +
+                                 " and already processed";
+
+                logger.info(details);
+
+                execution.setStatusDetails(details);
+
+                // Ending the deployment skips the rest of the pipeline, since there's nothing to process
+                deployment.endAsNoOp();
+            } else {
+                doPull(execution);
+            }
         } else {
             doClone(execution);
         }
@@ -135,38 +214,126 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
         return true;
     }
 
-    protected void doPull(ProcessorExecution execution) throws DeployerException {
-        try (Git git = openLocalRepository()) {
-            logger.info("Executing git fetch for repository {}...", localRepoFolder);
-
-            GitUtils.fetch(git, authenticationConfigurator);
+    /**
+     * Returns true if the tip of the remote branch is the same commit as the remote tracking ref and the HEAD of the local
+     * repository, and that commit was already processed.
+     */
+    protected boolean isUpToDate() {
+        if (StringUtils.isEmpty(remoteRepoBranch) || processedCommitsStore == null) {
+            return false;
+        }
 
-            // We're checking first if a merge will work, without affecting the actual repository
-            Repository repo = git.getRepository();
-            ThreeWayMerger merger = MergeStrategy.RECURSIVE.newMerger(repo, true);
-            ObjectId headId = repo.resolve("HEAD");
-            ObjectId fetchHeadId = repo.resolve("FETCH_HEAD");
-            boolean mergeHasConflicts = !merger.merge(headId, fetchHeadId);
+        try {
+            ObjectId processedCommitId = processedCommitsStore.load(targetId);
+            if (processedCommitId == null) {
+                return false;
+            }
 
-            // If the merge has conflicts, we should reset to the last common commit with upstream
-            if (mergeHasConflicts) {
-                logger.warn("Merge conflicts detected, resetting repository {} to the last common commit with the " +
-                            "remote repository...", localRepoFolder);
-                logger.debug("Repository will be reset to commit '{}'", merger.getBaseCommitId().name());
+            try (Git git = openLocalRepository()) {
+                Repository repo = git.getRepository();
+                Ref trackingRef = repo.exactRef(GitUtils.getBranchRefSpec(remoteRepoBranch).getDestination());
 
-                GitUtils.reset(git, merger.getBaseCommitId());
+                if (trackingRef == null || !processedCommitId.equals(trackingRef.getObjectId()) ||
+                    !processedCommitId.equals(repo.resolve(Constants.HEAD))) {
+                    return false;
+                }
             }
 
-            if(useRebase) {
-                doRebase(git, execution);
+            ObjectId remoteTipId = GitUtils.getRemoteBranchTip(remoteRepoUrl, remoteRepoBranch, authenticationConfigurator);
+
+            logger.debug("Remote branch {} of repo {} is at commit {}", remoteRepoBranch, remoteRepoUrl, remoteTipId);
+
+            return processedCommitId.equals(remoteTipId);
+        } catch (DeployerException | GitAPIException | IOException e) {
+            logger.warn("Unable to check if local repository " + localRepoFolder + " is up to date. A pull will be done", e);
+
+            return false;
+        }
+    }
+
+    protected void doPull(ProcessorExecution execution) throws DeployerException {
+        try (Git git = openLocalRepository()) {
+            logger.info("Executing git fetch for repository {}...", localRepoFolder);
+
+            // Only fetch the branch that's deployed, instead of every branch of the remote repository
+            GitUtils.fetch(git, authenticationConfigurator, remoteRepoBranch, fetchTags? TagOpt.AUTO_FOLLOW: TagOpt.NO_TAGS,
+                           new CancellationMonitor());
+
+            if (mirror) {
+                doMirror(git, execution);
             } else {
-                doMerge(git, execution);
+                // We're checking first if a merge will work, without affecting the actual repository
+                Repository repo = git.getRepository();
+                ThreeWayMerger merger = MergeStrategy.RECURSIVE.newMerger(repo, true);
+                ObjectId headId = repo.resolve("HEAD");
+                ObjectId fetchHeadId = repo.resolve("FETCH_HEAD");
+                boolean mergeHasConflicts = !merger.merge(headId, fetchHeadId);
+
+                // If the merge has conflicts, we should reset to the last common commit with upstream
+                if (mergeHasConflicts) {
+                    logger.warn("Merge conflicts detected, resetting repository {} to the last common commit with the " +
+                                "remote repository...", localRepoFolder);
+                    logger.debug("Repository will be reset to commit '{}'", merger.getBaseCommitId().name());
+
+                    resetRepository(git, merger.getBaseCommitId());
+                }
+
+                if(useRebase) {
+                    doRebase(git, execution);
+                } else {
+                    doMerge(git, execution);
+                }
             }
         } catch (GitAPIException | IOException e) {
             throw new DeployerException("Execution of git pull failed:", e);
         }
     }
 
+    protected void doMirror(Git git, ProcessorExecution execution) throws GitAPIException, IOException, DeployerException {
+        Repository repo = git.getRepository();
+        String trackingRefName = GitUtils.getBranchRefSpec(remoteRepoBranch).getDestination();
+        ObjectId headId = repo.resolve(Constants.HEAD);
+        // The tracking ref (unlike FETCH_HEAD, which could hold other fetched refs) is always the tip of the mirrored branch
+        ObjectId remoteBranchId = repo.resolve(trackingRefName);
+        String details;
+
+        if (remoteBranchId == null) {
+            throw new DeployerException("Branch " + remoteRepoBranch + " wasn't fetched from remote repo " + remoteRepoUrl);
+        }
+
+        if (remoteBranchId.equals(headId)) {
+            details = "Local repository " + localRepoFolder + " up to date (no changes pulled from remote repo " + remoteRepoUrl +
+                      ") (mirror at commit " + remoteBranchId.name() + ")";
+        } else {
+            logger.info("Resetting repository {} to {} at commit '{}'...", localRepoFolder, trackingRefName,
+                        remoteBranchId.name());
+
+            // A hard reset only rewrites the files that are different in the fetched commit
+            resetRepository(git, remoteBranchId);
+
+            details = "Changes successfully pulled from remote repo " + remoteRepoUrl + " into local repo " + localRepoFolder +
+                      " (mirror reset to commit " + remoteBranchId.name() + ")";
+        }
+
+        logger.info(details);
+
+        execution.setStatusDetails(details);
+    }
+
+    protected void resetRepository(Git git, ObjectId commitId) throws GitAPIException {
+        try {
+            GitUtils.reset(git, commitId);
+        } finally {
+            invalidateRepositoryCache();
+        }
+    }
+
+    protected void invalidateRepositoryCache() {
+        if (repositoryCache != null) {
+            repositoryCache.invalidate();
+        }
+    }
+
     protected void doMerge(Git git, ProcessorExecution execution) throws GitAPIException, IOException, DeployerException {
         logger.info("Executing git merge for repository {}...", localRepoFolder);
 
@@ -243,6 +410,10 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
 
     protected Git openLocalRepository() throws DeployerException {
         try {
+            if (repositoryCache != null) {
+                return repositoryCache.open();
+            }
+
             logger.debug("Opening local Git repository at {}", localRepoFolder);
 
             return GitUtils.openRepository(localRepoFolder);
@@ -262,6 +433,9 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
     }
 
     protected Git cloneRemoteRepository() throws DeployerException {
+        // The cached repository (if any) is replaced by the clone
+        invalidateRepositoryCache();
+
         try {
             if (localRepoFolder.exists()) {
                 logger.debug("Deleting existing folder {} before cloning", localRepoFolder);
@@ -275,8 +449,8 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
 
             logger.info("Cloning Git remote repository {} into {}", remoteRepoUrl, localRepoFolder);
 
-            return GitUtils.cloneRemoteRepository(remoteRepoUrl, remoteRepoBranch, authenticationConfigurator, localRepoFolder,
-                                                  null, null, null);
+            return GitUtils.cloneRemoteRepository(remoteRepoUrl, remoteRepoBranch, singleBranchClone, authenticationConfigurator,
+                                                  localRepoFolder, null, null, null, new CancellationMonitor());
         } catch (IOException | GitAPIException | IllegalArgumentException e) {
             // Force delete so there's no invalid remains
             FileUtils.deleteQuietly(localRepoFolder);
@@ -322,4 +496,16 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
         return authConfigurator;
     }
 
+    /**
+     * Progress monitor that makes JGit abort the current operation when the processor is cancelled.
+     */
+    protected class CancellationMonitor extends EmptyProgressMonitor {
+
+        @Override
+        public boolean isCancelled() {
+            return GitPullProcessor.this.isCancelled();
+        }
+
+    }
+
 }
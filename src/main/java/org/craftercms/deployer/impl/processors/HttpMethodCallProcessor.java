@@ -102,7 +102,7 @@ public class HttpMethodCallProcessor extends AbstractMainDeploymentProcessor {
                 logger.error("Error response for request {}: status = {}, body = {}", request, status, body);
 
                 execution.setStatusDetails("Error response for request " + request + ": status = " + status);
-                execution.endExecution(Deployment.Status.FAILURE);
+                deployment.endProcessorExecution(execution, Deployment.Status.FAILURE);
             }
         } catch (IOException e) {
             throw new DeployerException("IO error on HTTP request " + request, e);
@@ -117,7 +117,7 @@ public class MailNotificationProcessor extends AbstractPostDeploymentProcessor {
     }
 
     @Override
-    public void init(Configuration config) throws DeployerException {
+    protected void doInit(Configuration config) throws DeployerException {
         templateName = ConfigUtils.getStringProperty(config, TEMPLATE_NAME_CONFIG_KEY, defaultTemplateName);
         from = ConfigUtils.getStringProperty(config, FROM_CONFIG_KEY, defaultFrom);
         to = ConfigUtils.getRequiredStringArrayProperty(config, TO_CONFIG_KEY);
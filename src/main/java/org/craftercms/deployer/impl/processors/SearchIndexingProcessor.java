@@ -145,20 +145,25 @@ public class SearchIndexingProcessor extends AbstractMainDeploymentProcessor {
         try {
             if (CollectionUtils.isNotEmpty(createdFiles)) {
                 for (BatchIndexer indexer : batchIndexers) {
+                    checkCancelled();
                     indexer.updateIndex(searchService, indexId, siteName, contentStoreService, context, updateSet, updateStatus);
                 }
             }
             if (CollectionUtils.isNotEmpty(updatedFiles)) {
                 for (BatchIndexer indexer : batchIndexers) {
+                    checkCancelled();
                     indexer.updateIndex(searchService, indexId, siteName, contentStoreService, context, updateSet, updateStatus);
                 }
             }
             if (CollectionUtils.isNotEmpty(deletedFiles)) {
                 for (BatchIndexer indexer : batchIndexers) {
+                    checkCancelled();
                     indexer.updateIndex(searchService, indexId, siteName, contentStoreService, context, updateSet, updateStatus);
                 }
             }
 
+            checkCancelled();
+
             if (updateStatus.getAttemptedUpdatesAndDeletes() > 0) {
                 searchService.commit(indexId);
             }
@@ -176,6 +181,12 @@ public class SearchIndexingProcessor extends AbstractMainDeploymentProcessor {
         return false;
     }
 
+    protected void checkCancelled() throws DeployerException {
+        if (isCancelled()) {
+            throw new DeployerException("Search indexing was cancelled");
+        }
+    }
+
     protected Context createContentStoreContext() throws DeployerException {
         try {
             Context context = contentStoreService.createContext(FileSystemContentStoreAdapter.STORE_TYPE, null, null, null, localRepoUrl,
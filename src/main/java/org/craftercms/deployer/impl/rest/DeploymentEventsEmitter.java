@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl.rest;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.DeploymentListener;
+import org.craftercms.deployer.api.ProcessorExecution;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * {@link SseEmitter} that streams the progress of a {@link Deployment} as server-sent events. The first event is always a
+ * {@code deployment} event with the current state of the deployment. Then an event is sent for each {@link Deployment.Event}
+ * ({@code started}, {@code processor_started}, {@code processor_ended} and {@code ended}), and finally a {@code done} event
+ * when all the processors have been executed, after which the stream is closed.
+ *
+ * @author avasquez
+ */
+public class DeploymentEventsEmitter extends SseEmitter implements DeploymentListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeploymentEventsEmitter.class);
+
+    public static final String DEPLOYMENT_EVENT_NAME = "deployment";
+    public static final String DONE_EVENT_NAME = "done";
+
+    protected Deployment deployment;
+    protected Executor executor;
+    protected BlockingQueue<PendingEvent> pendingEvents;
+    protected AtomicBoolean writing;
+    protected volatile boolean closed;
+    protected boolean completed;
+
+    /**
+     * Creates the emitter.
+     *
+     * @param deployment    the deployment whose events are streamed
+     * @param timeout       the max time, in milliseconds, that the stream is kept open
+     * @param executor      the executor where the events are written to the client
+     * @param queueCapacity the max number of events waiting to be written. If a client is too slow and the queue fills up,
+     *                      the stream is closed
+     */
+    public DeploymentEventsEmitter(Deployment deployment, long timeout, Executor executor, int queueCapacity) {
+        super(timeout);
+
+        this.deployment = deployment;
+        this.executor = executor;
+        this.pendingEvents = new LinkedBlockingQueue<>(queueCapacity);
+        this.writing = new AtomicBoolean();
+    }
+
+    /**
+     * Starts streaming the events of the deployment.
+     */
+    public void start() {
+        onCompletion(() -> deployment.removeListener(this));
+
+        deployment.addListener(this);
+
+        sendEvent(DEPLOYMENT_EVENT_NAME, deployment);
+
+        deployment.getDoneFuture().whenComplete((result, ex) -> {
+            sendEvent(DONE_EVENT_NAME, deployment);
+            close();
+        });
+    }
+
+    /**
+     * Only queues the event, since it's called from the deployment thread: the event is written to the client in the executor.
+     */
+    @Override
+    public void onDeploymentEvent(Deployment.Event event, Deployment deployment, ProcessorExecution execution) {
+        sendEvent(event.name().toLowerCase(), execution != null ? execution : deployment);
+    }
+
+    /**
+     * Queues an event to be written to the client. The data is serialized when the event is written, so it reflects the state
+     * of the deployment at that time. If the queue is full, the client isn't keeping up, so the stream is closed.
+     */
+    protected void sendEvent(String name, Object data) {
+        if (closed) {
+            return;
+        }
+
+        if (!pendingEvents.offer(new PendingEvent(name, data))) {
+            logger.debug("Too many events of deployment '{}' waiting to be sent. Closing the stream", deployment.getId());
+
+            close();
+        }
+
+        scheduleWrite();
+    }
+
+    /**
+     * Stops listening to the deployment, and completes the stream once the events already queued have been written.
+     */
+    protected void close() {
+        closed = true;
+
+        deployment.removeListener(this);
+
+        scheduleWrite();
+    }
+
+    protected void scheduleWrite() {
+        // Only one write task at a time, so the events are written in order
+        if (writing.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::writeEvents);
+            } catch (RejectedExecutionException e) {
+                writing.set(false);
+
+                logger.debug("Unable to write events of deployment '{}'", deployment.getId(), e);
+
+                closed = true;
+                deployment.removeListener(this);
+                pendingEvents.clear();
+            }
+        }
+    }
+
+    protected void writeEvents() {
+        do {
+            PendingEvent event;
+            while ((event = pendingEvents.poll()) != null) {
+                writeEvent(event);
+            }
+
+            // Only accessed by the write task, which never runs concurrently with itself
+            if (closed && !completed) {
+                completed = true;
+                pendingEvents.clear();
+
+                complete();
+            }
+
+            writing.set(false);
+            // An event could have been queued after the queue was found empty, but before the flag was cleared
+        } while (!pendingEvents.isEmpty() && writing.compareAndSet(false, true));
+    }
+
+    protected void writeEvent(PendingEvent event) {
+        try {
+            send(event().name(event.name).data(event.data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the stream was already completed
+            logger.debug("Unable to send event '{}' of deployment '{}'", event.name, deployment.getId(), e);
+
+            closed = true;
+            deployment.removeListener(this);
+            pendingEvents.clear();
+        }
+    }
+
+    protected static class PendingEvent {
+
+        protected final String name;
+        protected final Object data;
+
+        public PendingEvent(String name, Object data) {
+            this.name = name;
+            this.data = data;
+        }
+
+    }
+
+}
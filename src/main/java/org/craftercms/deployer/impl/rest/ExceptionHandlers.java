@@ -19,6 +19,8 @@ package org.craftercms.deployer.impl.rest;
 import org.craftercms.commons.rest.BaseRestExceptionHandlers;
 import org.craftercms.commons.rest.RestServiceUtils;
 import org.craftercms.commons.validation.rest.ValidationAwareRestExceptionHandlers;
+import org.craftercms.deployer.api.exceptions.DeploymentNotFoundException;
+import org.craftercms.deployer.api.exceptions.DeploymentQueueFullException;
 import org.craftercms.deployer.api.exceptions.TargetAlreadyExistsException;
 import org.craftercms.deployer.api.exceptions.TargetNotFoundException;
 import org.springframework.http.HttpHeaders;
@@ -49,6 +51,33 @@ public class ExceptionHandlers extends ValidationAwareRestExceptionHandlers {
         return handleExceptionInternal(ex, "Target not found", new HttpHeaders(), HttpStatus.NOT_FOUND, request);
     }
 
+    /**
+     * Handles a {@link DeploymentNotFoundException} by returning a 404 NOT FOUND.
+     *
+     * @param ex        the exception
+     * @param request   the current request
+     *
+     * @return the response entity, with the body and status
+     */
+    @ExceptionHandler(DeploymentNotFoundException.class)
+    public ResponseEntity<Object> handleDeploymentNotFoundException(DeploymentNotFoundException ex, WebRequest request) {
+        return handleExceptionInternal(ex, "Deployment not found", new HttpHeaders(), HttpStatus.NOT_FOUND, request);
+    }
+
+    /**
+     * Handles a {@link DeploymentQueueFullException} by returning a 429 TOO MANY REQUESTS.
+     *
+     * @param ex        the exception
+     * @param request   the current request
+     *
+     * @return the response entity, with the body and status
+     */
+    @ExceptionHandler(DeploymentQueueFullException.class)
+    public ResponseEntity<Object> handleDeploymentQueueFullException(DeploymentQueueFullException ex, WebRequest request) {
+        return handleExceptionInternal(ex, "Deployment queue is full", new HttpHeaders(), HttpStatus.TOO_MANY_REQUESTS,
+                                       request);
+    }
+
     /**
      * Handles a {@link TargetAlreadyExistsException} by returning a 409 CONFLICT.
      *
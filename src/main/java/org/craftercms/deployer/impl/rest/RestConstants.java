@@ -31,6 +31,10 @@ public class RestConstants {
      * Site name path variable name.
      */
     public static final String SITE_NAME_PATH_VAR_NAME = "site_name";
+    /**
+     * Deployment ID path variable name.
+     */
+    public static final String DEPLOYMENT_ID_PATH_VAR_NAME = "deployment_id";
     /**
      * Request param that indicates if request shouldn't finish until the deployment is done.
      */
@@ -16,12 +16,16 @@
  */
 package org.craftercms.deployer.impl.rest;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -33,19 +37,28 @@ import org.craftercms.commons.validation.ErrorCodes;
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.DeploymentService;
 import org.craftercms.deployer.api.Target;
+import org.craftercms.deployer.api.TargetCreationRequest;
+import org.craftercms.deployer.api.TargetDeploymentResult;
+import org.craftercms.deployer.api.TargetOperationResult;
 import org.craftercms.deployer.api.TargetService;
 import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.api.exceptions.DeploymentNotFoundException;
 import org.craftercms.deployer.utils.BooleanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import static org.craftercms.deployer.impl.rest.RestConstants.DEPLOYMENT_ID_PATH_VAR_NAME;
 import static org.craftercms.deployer.impl.rest.RestConstants.ENV_PATH_VAR_NAME;
 import static org.craftercms.deployer.impl.rest.RestConstants.SITE_NAME_PATH_VAR_NAME;
 import static org.craftercms.deployer.impl.rest.RestConstants.WAIT_TILL_DONE_PARAM_NAME;
@@ -61,28 +74,55 @@ public class TargetController {
 
     public static final String BASE_URL = "/api/1/target";
     public static final String CREATE_TARGET_URL = "/create";
+    public static final String CREATE_TARGETS_URL = "/create-bulk";
     public static final String GET_TARGET_URL = "/get/{" + ENV_PATH_VAR_NAME + "}/{" + SITE_NAME_PATH_VAR_NAME + "}";
     public static final String GET_ALL_TARGETS_URL = "/get-all";
     public static final String DELETE_TARGET_URL = "/delete/{" + ENV_PATH_VAR_NAME + "}/{" + SITE_NAME_PATH_VAR_NAME + "}";
+    public static final String DELETE_TARGETS_URL = "/delete-bulk";
     public static final String DEPLOY_TARGET_URL = "/deploy/{" + ENV_PATH_VAR_NAME + "}/{" + SITE_NAME_PATH_VAR_NAME + "}";
     public static final String DEPLOY_ALL_TARGETS_URL = "/deploy-all";
+    public static final String DEPLOY_ON_PUSH_URL = "/deploy-on-push";
     public static final String GET_PENDING_DEPLOYMENTS_URL = "/deployments/get-pending/{" + ENV_PATH_VAR_NAME + "}/" +
                                                              "{" + SITE_NAME_PATH_VAR_NAME + "}";
     public static final String GET_CURRENT_DEPLOYMENT_URL = "/deployments/get-current/{" + ENV_PATH_VAR_NAME + "}/" +
                                                             "{" + SITE_NAME_PATH_VAR_NAME + "}";
+    public static final String CANCEL_CURRENT_DEPLOYMENT_URL = "/deployments/cancel-current/{" + ENV_PATH_VAR_NAME + "}/" +
+                                                               "{" + SITE_NAME_PATH_VAR_NAME + "}";
+    public static final String GET_DEPLOYMENT_URL = "/deployments/get/{" + ENV_PATH_VAR_NAME + "}/" +
+                                                    "{" + SITE_NAME_PATH_VAR_NAME + "}/{" + DEPLOYMENT_ID_PATH_VAR_NAME + "}";
+    public static final String GET_DEPLOYMENT_EVENTS_URL = "/deployments/events/{" + ENV_PATH_VAR_NAME + "}/" +
+                                                           "{" + SITE_NAME_PATH_VAR_NAME + "}/{" +
+                                                           DEPLOYMENT_ID_PATH_VAR_NAME + "}";
     public static final String GET_ALL_DEPLOYMENTS_URL = "/deployments/get-all/{" + ENV_PATH_VAR_NAME + "}/" +
                                                          "{" + SITE_NAME_PATH_VAR_NAME + "}";
 
     public static final String REPLACE_PARAM_NAME = "replace";
     public static final String TEMPLATE_NAME_PARAM_NAME = "template_name";
+    public static final String REPO_URL_PARAM_NAME = "repo_url";
+    public static final String BRANCH_PARAM_NAME = "branch";
+    public static final String REF_PARAM_NAME = "ref";
+    public static final String COMMIT_ID_PARAM_NAME = "commit_id";
+    public static final String SITE_NAME_PATTERN_PARAM_NAME = "site_name_pattern";
+
+    public static final String MISSING_TARGET_PARAMS_ERROR_MESSAGE = "The " + ENV_PATH_VAR_NAME + " and " +
+                                                                     SITE_NAME_PATH_VAR_NAME + " parameters are required";
 
     protected TargetService targetService;
     protected DeploymentService deploymentService;
+    protected long deploymentEventsTimeout;
+    protected int deploymentEventsQueueCapacity;
+    protected Executor deploymentEventsExecutor;
 
     @Autowired
-    public TargetController(TargetService targetService, DeploymentService deploymentService) {
+    public TargetController(TargetService targetService, DeploymentService deploymentService,
+                            @Value("${deployer.main.deployments.events.timeout}") long deploymentEventsTimeout,
+                            @Value("${deployer.main.deployments.events.queueCapacity}") int deploymentEventsQueueCapacity,
+                            @Qualifier("deploymentEventsExecutor") Executor deploymentEventsExecutor) {
         this.targetService = targetService;
         this.deploymentService = deploymentService;
+        this.deploymentEventsTimeout = deploymentEventsTimeout;
+        this.deploymentEventsQueueCapacity = deploymentEventsQueueCapacity;
+        this.deploymentEventsExecutor = deploymentEventsExecutor;
     }
 
     /**
@@ -99,49 +139,56 @@ public class TargetController {
      */
     @RequestMapping(value = CREATE_TARGET_URL, method = RequestMethod.POST)
     public ResponseEntity<Result> createTarget(@RequestBody Map<String, Object> params) throws DeployerException, ValidationException {
-        String env = "";
-        String siteName = "";
-        boolean replace = false;
-        String templateName = "";
-        Map<String, Object> templateParams = new HashMap<>();
+        TargetCreationRequest request = createTargetCreationRequest(params);
 
-        for (Map.Entry<String, Object> param : params.entrySet()) {
-            switch (param.getKey()) {
-                case ENV_PATH_VAR_NAME:
-                    env = Objects.toString(param.getValue(), "");
-                    break;
-                case SITE_NAME_PATH_VAR_NAME:
-                    siteName = Objects.toString(param.getValue(), "");
-                    break;
-                case REPLACE_PARAM_NAME:
-                    replace = BooleanUtils.toBoolean(param.getValue());
-                    break;
-                case TEMPLATE_NAME_PARAM_NAME:
-                    templateName = Objects.toString(param.getValue(), "");
-                    break;
-                default:
-                    templateParams.put(param.getKey(), param.getValue());
-                    break;
+        targetService.createTarget(request.getEnv(), request.getSiteName(), request.isReplace(), request.getTemplateName(),
+                                   request.getTemplateParams());
+
+        return new ResponseEntity<>(Result.OK,
+                                    RestServiceUtils.setLocationHeader(new HttpHeaders(), BASE_URL + GET_TARGET_URL,
+                                                                       request.getEnv(), request.getSiteName()),
+                                    HttpStatus.CREATED);
+    }
+
+    /**
+     * Creates several Deployer {@link Target}s at once. The configurations of all targets are written first, and then the
+     * targets are loaded in parallel.
+     *
+     * @param paramsList the body of the request, with a list of the same parameters accepted when creating a single target
+     *
+     * @return the response entity with the result of each target (in the same order as in the request) and 200 OK status
+     *
+     * @throws DeployerException if a general error occurred
+     */
+    @RequestMapping(value = CREATE_TARGETS_URL, method = RequestMethod.POST)
+    public ResponseEntity<List<TargetOperationResult>> createTargets(
+        @RequestBody List<Map<String, Object>> paramsList) throws DeployerException {
+        TargetOperationResult[] results = new TargetOperationResult[paramsList.size()];
+        List<TargetCreationRequest> requests = new ArrayList<>();
+        List<Integer> requestIndexes = new ArrayList<>();
+
+        for (int i = 0; i < paramsList.size(); i++) {
+            Map<String, Object> params = paramsList.get(i);
+
+            try {
+                requests.add(createTargetCreationRequest(params));
+                requestIndexes.add(i);
+            } catch (ValidationException e) {
+                results[i] = TargetOperationResult.failure(Objects.toString(params.get(ENV_PATH_VAR_NAME), null),
+                                                           Objects.toString(params.get(SITE_NAME_PATH_VAR_NAME), null),
+                                                           MISSING_TARGET_PARAMS_ERROR_MESSAGE);
             }
         }
 
-        ValidationResult validationResult = new ValidationResult();
-        
-        if (StringUtils.isEmpty(env)) {
-            validationResult.addError(ENV_PATH_VAR_NAME, ErrorCodes.FIELD_MISSING_ERROR_CODE);
-        }
-        if (StringUtils.isEmpty(siteName)) {
-            validationResult.addError(SITE_NAME_PATH_VAR_NAME, ErrorCodes.FIELD_MISSING_ERROR_CODE);
-        }
-        if (validationResult.hasErrors()) {
-            throw new ValidationException(validationResult);
-        }
+        if (!requests.isEmpty()) {
+            List<TargetOperationResult> creationResults = targetService.createTargets(requests);
 
-        targetService.createTarget(env, siteName, replace, templateName, templateParams);
+            for (int i = 0; i < creationResults.size(); i++) {
+                results[requestIndexes.get(i)] = creationResults.get(i);
+            }
+        }
 
-        return new ResponseEntity<>(Result.OK,
-                                    RestServiceUtils.setLocationHeader(new HttpHeaders(), BASE_URL + GET_TARGET_URL, env, siteName),
-                                    HttpStatus.CREATED);
+        return new ResponseEntity<>(Arrays.asList(results), HttpStatus.OK);
     }
 
     /**
@@ -198,6 +245,38 @@ public class TargetController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    /**
+     * Deletes several {@link Target}s at once. A failure while deleting one target doesn't affect the rest.
+     *
+     * @param paramsList the body of the request, with a list of the {@code env} and {@code site_name} of each target
+     *
+     * @return the response entity with the result of each target (in the same order as in the request) and 200 OK status
+     */
+    @RequestMapping(value = DELETE_TARGETS_URL, method = RequestMethod.POST)
+    public ResponseEntity<List<TargetOperationResult>> deleteTargets(@RequestBody List<Map<String, Object>> paramsList) {
+        List<TargetOperationResult> results = new ArrayList<>(paramsList.size());
+
+        for (Map<String, Object> params : paramsList) {
+            String env = Objects.toString(params.get(ENV_PATH_VAR_NAME), "");
+            String siteName = Objects.toString(params.get(SITE_NAME_PATH_VAR_NAME), "");
+
+            if (StringUtils.isEmpty(env) || StringUtils.isEmpty(siteName)) {
+                results.add(TargetOperationResult.failure(env, siteName, MISSING_TARGET_PARAMS_ERROR_MESSAGE));
+                continue;
+            }
+
+            try {
+                targetService.deleteTarget(env, siteName);
+
+                results.add(TargetOperationResult.success(env, siteName));
+            } catch (DeployerException e) {
+                results.add(TargetOperationResult.failure(env, siteName, e.getMessage()));
+            }
+        }
+
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
     /**
      * Deploys the {@link Target} with the specified environment and site name.
      *
@@ -206,12 +285,13 @@ public class TargetController {
      * @param params    any additional parameters that can be used by the {@link org.craftercms.deployer.api.DeploymentProcessor}s, for
      *                  example {@code reprocess_all_files}
      *
-     * @return the response entity with a 200 OK status
+     * @return the response entity with the deployment info (including the ID that can be used to follow its progress) and a 202
+     * ACCEPTED status
      *
      * @throws DeployerException if an error occurred
      */
     @RequestMapping(value = DEPLOY_TARGET_URL, method = RequestMethod.POST)
-    public ResponseEntity<Result> deployTarget(@PathVariable(ENV_PATH_VAR_NAME) String env,
+    public ResponseEntity<Deployment> deployTarget(@PathVariable(ENV_PATH_VAR_NAME) String env,
                                                @PathVariable(SITE_NAME_PATH_VAR_NAME) String siteName,
                                                @RequestBody(required = false) Map<String, Object> params)
                             throws DeployerException, ExecutionException, InterruptedException {
@@ -224,35 +304,105 @@ public class TargetController {
             waitTillDone = BooleanUtils.toBoolean(params.remove(WAIT_TILL_DONE_PARAM_NAME));
         }
 
-        deploymentService.deployTarget(env, siteName, waitTillDone, params);
+        Deployment deployment = deploymentService.deployTarget(env, siteName, waitTillDone, params);
 
-        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Result.OK);
+        return new ResponseEntity<>(deployment,
+                                    RestServiceUtils.setLocationHeader(new HttpHeaders(), BASE_URL + GET_DEPLOYMENT_URL, env,
+                                                                       siteName, deployment.getId()),
+                                    HttpStatus.ACCEPTED);
     }
 
     /**
-     * Deploys all current {@link Target}s.
+     * Deploys all current {@link Target}s, or only the ones that match the {@code env} and {@code site_name_pattern} params.
+     * The targets are deployed in parallel.
      *
      * @param params    any additional parameters that can be used by the {@link org.craftercms.deployer.api.DeploymentProcessor}s, for
      *                  example {@code reprocess_all_files}
      *
-     * @return the response entity with a 200 OK status
+     * @return the response entity with the result of each matching target, by target ID, and a 202 ACCEPTED status. The result
+     *         contains the deployment of the target, or the error if the deployment was rejected (because the deployment queue
+     *         of the target is full)
      *
      * @throws DeployerException if an error occurred
      */
     @RequestMapping(value = DEPLOY_ALL_TARGETS_URL, method = RequestMethod.POST)
-    public ResponseEntity<Result> deployAllTargets(@RequestBody(required = false) Map<String, Object> params) throws DeployerException {
+    public ResponseEntity<Map<String, TargetDeploymentResult>> deployAllTargets(@RequestBody(required = false)
+                                                                                Map<String, Object> params)
+        throws DeployerException {
         if (params == null) {
             params = new HashMap<>();
         }
 
         boolean waitTillDone = false;
+        String env = null;
+        String siteNamePattern = null;
+
         if (MapUtils.isNotEmpty(params)) {
            waitTillDone = BooleanUtils.toBoolean(params.remove(WAIT_TILL_DONE_PARAM_NAME));
+           env = Objects.toString(params.remove(ENV_PATH_VAR_NAME), null);
+           siteNamePattern = Objects.toString(params.remove(SITE_NAME_PATTERN_PARAM_NAME), null);
+        }
+
+        List<TargetDeploymentResult> results = deploymentService.deployAllTargets(env, siteNamePattern, waitTillDone, params);
+        Map<String, TargetDeploymentResult> resultsByTarget = new LinkedHashMap<>();
+
+        for (TargetDeploymentResult result : results) {
+            resultsByTarget.put(result.getTargetId(), result);
+        }
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(resultsByTarget);
+    }
+
+    /**
+     * Deploys all the {@link Target}s that pull from a remote repository branch, as a response to a push notification. The
+     * deployments are debounced, so several pushes in a short time result in a single deployment per target.
+     *
+     * @param params    the body of the request, which must contain at least the {@code repo_url} parameter. It can also contain
+     *                  the {@code branch} (or the full {@code ref}) that was pushed, which defaults to {@code master}, and the
+     *                  {@code commit_id} of the new head of the branch. Any other parameter is passed to the
+     *                  {@link org.craftercms.deployer.api.DeploymentProcessor}s
+     *
+     * @return the response entity with the targets that will be deployed and a 202 ACCEPTED status
+     *
+     * @throws DeployerException   if an error occurred
+     * @throws ValidationException if a required parameter is missing
+     */
+    @RequestMapping(value = DEPLOY_ON_PUSH_URL, method = RequestMethod.POST)
+    public ResponseEntity<List<Target>> deployTargetsOnPush(@RequestBody Map<String, Object> params)
+        throws DeployerException, ValidationException {
+        String repoUrl = "";
+        String branch = "";
+        String commitId = "";
+        Map<String, Object> deploymentParams = new HashMap<>();
+
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            switch (param.getKey()) {
+                case REPO_URL_PARAM_NAME:
+                    repoUrl = Objects.toString(param.getValue(), "");
+                    break;
+                case BRANCH_PARAM_NAME:
+                case REF_PARAM_NAME:
+                    branch = Objects.toString(param.getValue(), "");
+                    break;
+                case COMMIT_ID_PARAM_NAME:
+                    commitId = Objects.toString(param.getValue(), "");
+                    break;
+                default:
+                    deploymentParams.put(param.getKey(), param.getValue());
+                    break;
+            }
         }
 
-        deploymentService.deployAllTargets(waitTillDone, params);
+        if (StringUtils.isEmpty(repoUrl)) {
+            ValidationResult validationResult = new ValidationResult();
+            validationResult.addError(REPO_URL_PARAM_NAME, ErrorCodes.FIELD_MISSING_ERROR_CODE);
 
-        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Result.OK);
+            throw new ValidationException(validationResult);
+        }
+
+        List<Target> targets = deploymentService.deployTargetsOnPush(repoUrl, branch, commitId, deploymentParams);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(targets);
     }
 
     /**
@@ -301,6 +451,76 @@ public class TargetController {
                                     HttpStatus.OK);
     }
 
+    /**
+     * Gets a deployment of a target by ID. The deployment can be pending, current or one of the last completed ones.
+     *
+     * @param env           the target's environment
+     * @param siteName      the target's site name
+     * @param deploymentId  the ID of the deployment
+     *
+     * @return the deployment
+     *
+     * @throws DeployerException if an error occurred or the deployment was not found
+     */
+    @RequestMapping(value = GET_DEPLOYMENT_URL, method = RequestMethod.GET)
+    public ResponseEntity<Deployment> getDeployment(@PathVariable(ENV_PATH_VAR_NAME) String env,
+                                                    @PathVariable(SITE_NAME_PATH_VAR_NAME) String siteName,
+                                                    @PathVariable(DEPLOYMENT_ID_PATH_VAR_NAME) String deploymentId)
+        throws DeployerException {
+        Deployment deployment = findDeployment(env, siteName, deploymentId);
+
+        return new ResponseEntity<>(deployment,
+                                    RestServiceUtils.setLocationHeader(new HttpHeaders(), BASE_URL + GET_DEPLOYMENT_URL, env,
+                                                                       siteName, deploymentId),
+                                    HttpStatus.OK);
+    }
+
+    /**
+     * Streams the progress of a deployment of a target as server-sent events, until the deployment is done.
+     *
+     * @param env           the target's environment
+     * @param siteName      the target's site name
+     * @param deploymentId  the ID of the deployment
+     *
+     * @return the emitter of the events (see {@link DeploymentEventsEmitter})
+     *
+     * @throws DeployerException if an error occurred or the deployment was not found
+     */
+    @RequestMapping(value = GET_DEPLOYMENT_EVENTS_URL, method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getDeploymentEvents(@PathVariable(ENV_PATH_VAR_NAME) String env,
+                                          @PathVariable(SITE_NAME_PATH_VAR_NAME) String siteName,
+                                          @PathVariable(DEPLOYMENT_ID_PATH_VAR_NAME) String deploymentId)
+        throws DeployerException {
+        Deployment deployment = findDeployment(env, siteName, deploymentId);
+
+        DeploymentEventsEmitter emitter = new DeploymentEventsEmitter(deployment, deploymentEventsTimeout,
+                                                                      deploymentEventsExecutor, deploymentEventsQueueCapacity);
+        emitter.start();
+
+        return emitter;
+    }
+
+    /**
+     * Cancels the current deployment of a target. The deployment stops as soon as its running processor responds to the
+     * cancellation.
+     *
+     * @param env       the target's environment
+     * @param siteName  the target's site name
+     *
+     * @return the response entity with the cancelled deployment (or no body if there was no deployment running) and a 202
+     * ACCEPTED status
+     *
+     * @throws DeployerException if an error occurred
+     */
+    @RequestMapping(value = CANCEL_CURRENT_DEPLOYMENT_URL, method = RequestMethod.POST)
+    public ResponseEntity<Deployment> cancelCurrentDeployment(@PathVariable(ENV_PATH_VAR_NAME) String env,
+                                                              @PathVariable(SITE_NAME_PATH_VAR_NAME) String siteName)
+        throws DeployerException {
+        Target target = targetService.getTarget(env, siteName);
+        Deployment deployment = target.cancelCurrentDeployment();
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(deployment);
+    }
 
     /**
      * Gets all deployments for a target (pending and current).
@@ -325,4 +545,55 @@ public class TargetController {
                                     HttpStatus.OK);
     }
 
+    protected Deployment findDeployment(String env, String siteName, String deploymentId) throws DeployerException {
+        Deployment deployment = targetService.getTarget(env, siteName).getDeployment(deploymentId);
+        if (deployment != null) {
+            return deployment;
+        } else {
+            throw new DeploymentNotFoundException(deploymentId);
+        }
+    }
+
+    protected TargetCreationRequest createTargetCreationRequest(Map<String, Object> params) throws ValidationException {
+        String env = "";
+        String siteName = "";
+        boolean replace = false;
+        String templateName = "";
+        Map<String, Object> templateParams = new HashMap<>();
+
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            switch (param.getKey()) {
+                case ENV_PATH_VAR_NAME:
+                    env = Objects.toString(param.getValue(), "");
+                    break;
+                case SITE_NAME_PATH_VAR_NAME:
+                    siteName = Objects.toString(param.getValue(), "");
+                    break;
+                case REPLACE_PARAM_NAME:
+                    replace = BooleanUtils.toBoolean(param.getValue());
+                    break;
+                case TEMPLATE_NAME_PARAM_NAME:
+                    templateName = Objects.toString(param.getValue(), "");
+                    break;
+                default:
+                    templateParams.put(param.getKey(), param.getValue());
+                    break;
+            }
+        }
+
+        ValidationResult validationResult = new ValidationResult();
+        
+        if (StringUtils.isEmpty(env)) {
+            validationResult.addError(ENV_PATH_VAR_NAME, ErrorCodes.FIELD_MISSING_ERROR_CODE);
+        }
+        if (StringUtils.isEmpty(siteName)) {
+            validationResult.addError(SITE_NAME_PATH_VAR_NAME, ErrorCodes.FIELD_MISSING_ERROR_CODE);
+        }
+        if (validationResult.hasErrors()) {
+            throw new ValidationException(validationResult);
+        }
+
+        return new TargetCreationRequest(env, siteName, replace, templateName, templateParams);
+    }
+
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration2.BaseHierarchicalConfiguration;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Immutable snapshot of a hierarchical configuration (normally the effective configuration of a target, which combines several
+ * configurations). Besides the node tree, the values of all the keys are flattened into a hash map when the snapshot is created,
+ * so looking up a simple key (like {@code target.search.serverUrl}) is a single hash lookup instead of a walk through the node
+ * trees of every combined configuration. Keys that use the expression syntax (like indexes) still go through the node tree.
+ * Sub-configurations (like the configuration of each processor) are also returned as snapshots. Any attempt to modify the
+ * snapshot results in an {@link UnsupportedOperationException}.
+ *
+ * @author avasquez
+ */
+public class ConfigurationSnapshot extends BaseHierarchicalConfiguration {
+
+    protected final Map<String, Object> properties;
+
+    public ConfigurationSnapshot(HierarchicalConfiguration<ImmutableNode> config) {
+        super(config);
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (Iterator<String> iter = super.getKeysInternal(); iter.hasNext();) {
+            String key = iter.next();
+
+            properties.put(key, super.getPropertyInternal(key));
+        }
+
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * Returns the flattened properties of the snapshot.
+     */
+    public Map<String, Object> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Returns a snapshot of the sub-configuration. The snapshot can't be modified, so there are no updates to support.
+     */
+    @Override
+    public HierarchicalConfiguration<ImmutableNode> configurationAt(String key, boolean supportUpdates) {
+        return new ConfigurationSnapshot(super.configurationAt(key, false));
+    }
+
+    @Override
+    public List<HierarchicalConfiguration<ImmutableNode>> configurationsAt(String key) {
+        return toSnapshots(super.configurationsAt(key));
+    }
+
+    /**
+     * Returns snapshots of the sub-configurations. The snapshots can't be modified, so there are no updates to support.
+     */
+    @Override
+    public List<HierarchicalConfiguration<ImmutableNode>> configurationsAt(String key, boolean supportUpdates) {
+        return configurationsAt(key);
+    }
+
+    @Override
+    public List<HierarchicalConfiguration<ImmutableNode>> childConfigurationsAt(String key) {
+        return toSnapshots(super.childConfigurationsAt(key));
+    }
+
+    /**
+     * Returns snapshots of the child sub-configurations. The snapshots can't be modified, so there are no updates to support.
+     */
+    @Override
+    public List<HierarchicalConfiguration<ImmutableNode>> childConfigurationsAt(String key, boolean supportUpdates) {
+        return childConfigurationsAt(key);
+    }
+
+    @Override
+    protected Object getPropertyInternal(String key) {
+        Object value = properties.get(key);
+        if (value != null || isSimpleKey(key)) {
+            return value;
+        } else {
+            return super.getPropertyInternal(key);
+        }
+    }
+
+    @Override
+    protected boolean containsKeyInternal(String key) {
+        return properties.containsKey(key) || (!isSimpleKey(key) && super.containsKeyInternal(key));
+    }
+
+    @Override
+    protected Iterator<String> getKeysInternal() {
+        return properties.keySet().iterator();
+    }
+
+    @Override
+    protected boolean isEmptyInternal() {
+        return properties.isEmpty();
+    }
+
+    @Override
+    protected int sizeInternal() {
+        return properties.size();
+    }
+
+    @Override
+    protected void addPropertyInternal(String key, Object obj) {
+        throw new UnsupportedOperationException("Configuration snapshot can't be modified");
+    }
+
+    @Override
+    protected void addNodesInternal(String key, Collection<? extends ImmutableNode> nodes) {
+        throw new UnsupportedOperationException("Configuration snapshot can't be modified");
+    }
+
+    @Override
+    protected void setPropertyInternal(String key, Object value) {
+        throw new UnsupportedOperationException("Configuration snapshot can't be modified");
+    }
+
+    @Override
+    protected void clearPropertyDirect(String key) {
+        throw new UnsupportedOperationException("Configuration snapshot can't be modified");
+    }
+
+    @Override
+    protected Object clearTreeInternal(String key) {
+        throw new UnsupportedOperationException("Configuration snapshot can't be modified");
+    }
+
+    @Override
+    protected void clearInternal() {
+        throw new UnsupportedOperationException("Configuration snapshot can't be modified");
+    }
+
+    protected List<HierarchicalConfiguration<ImmutableNode>> toSnapshots(List<HierarchicalConfiguration<ImmutableNode>> configs) {
+        List<HierarchicalConfiguration<ImmutableNode>> snapshots = new ArrayList<>(configs.size());
+        for (HierarchicalConfiguration<ImmutableNode> config : configs) {
+            snapshots.add(new ConfigurationSnapshot(config));
+        }
+
+        return snapshots;
+    }
+
+    /**
+     * Returns true if the key is a plain path of node names, without any expression syntax. All the simple keys with a value
+     * are in the flattened properties, so a simple key that's not there has no value.
+     */
+    protected boolean isSimpleKey(String key) {
+        return StringUtils.containsNone(key, '(', ')', '[', ']') && !key.contains("..");
+    }
+
+}
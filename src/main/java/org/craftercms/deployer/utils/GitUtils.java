@@ -18,12 +18,15 @@ package org.craftercms.deployer.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.craftercms.deployer.utils.git.GitAuthenticationConfigurator;
 import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LsRemoteCommand;
 import org.eclipse.jgit.api.MergeCommand;
 import org.eclipse.jgit.api.MergeResult;
 import org.eclipse.jgit.api.PullCommand;
@@ -34,11 +37,16 @@ import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.SshSessionFactory;
 import org.eclipse.jgit.transport.SshTransport;
+import org.eclipse.jgit.transport.TagOpt;
 
 /**
  * Utility methods for Git operations.
@@ -51,6 +59,8 @@ public abstract class GitUtils {
     public static final String BIG_FILE_THRESHOLD_CONFIG_PARAM = "bigFileThreshold";
     public static final String COMPRESSION_CONFIG_PARAM = "compression";
     public static final String FILE_MODE_CONFIG_PARAM = "fileMode";
+    public static final String REMOTE_CONFIG_SECTION = "remote";
+    public static final String FETCH_CONFIG_PARAM = "fetch";
 
     public static final String BIG_FILE_THRESHOLD_DEFAULT = "20m";
     public static final int COMPRESSION_DEFAULT = 0;
@@ -83,6 +93,7 @@ public abstract class GitUtils {
      * @param bigFileThreshold  the value of the Git {@code core.bigFileThreshold} config property
      * @param compression       the value of the Git {@code core.compression} config property
      * @param fileMode          the value of the Git {@code core.fileMode} config property
+     * @param monitor           the monitor used to track the progress of the clone, and to cancel it (optional)
      *
      * @return the Git instance used to handle the cloned repository
      *
@@ -90,15 +101,53 @@ public abstract class GitUtils {
      * @throws IOException      if an IO error occurs
      */
     public static Git cloneRemoteRepository(String remoteRepoUrl, String branch, GitAuthenticationConfigurator authConfigurator,
-                                            File localFolder, String bigFileThreshold, Integer compression, Boolean fileMode)
-        throws GitAPIException, IOException{
+                                            File localFolder, String bigFileThreshold, Integer compression, Boolean fileMode,
+                                            ProgressMonitor monitor) throws GitAPIException, IOException {
+        return cloneRemoteRepository(remoteRepoUrl, branch, false, authConfigurator, localFolder, bigFileThreshold, compression,
+                                     fileMode, monitor);
+    }
+
+    /**
+     * Clones a remote repository into a specific local folder.
+     *
+     * @param remoteRepoUrl     the URL of the remote repository. This should be a legal Git URL.
+     * @param branch            the branch which should be cloned
+     * @param singleBranch      if only the specified branch should be cloned (and fetched afterwards), instead of all the
+     *                          branches of the remote repository. Ignored if no branch is specified
+     * @param authConfigurator  the {@link GitAuthenticationConfigurator} class used to configure the authentication with the remote
+     *                          repository
+     * @param localFolder       the local folder into which the remote repository should be cloned
+     * @param bigFileThreshold  the value of the Git {@code core.bigFileThreshold} config property
+     * @param compression       the value of the Git {@code core.compression} config property
+     * @param fileMode          the value of the Git {@code core.fileMode} config property
+     * @param monitor           the monitor used to track the progress of the clone, and to cancel it (optional)
+     *
+     * @return the Git instance used to handle the cloned repository
+     *
+     * @throws GitAPIException  if a Git related error occurs
+     * @throws IOException      if an IO error occurs
+     */
+    public static Git cloneRemoteRepository(String remoteRepoUrl, String branch, boolean singleBranch,
+                                            GitAuthenticationConfigurator authConfigurator, File localFolder,
+                                            String bigFileThreshold, Integer compression, Boolean fileMode,
+                                            ProgressMonitor monitor) throws GitAPIException, IOException {
         CloneCommand command = Git.cloneRepository();
         command.setURI(remoteRepoUrl);
         command.setDirectory(localFolder);
 
+        if (monitor != null) {
+            command.setProgressMonitor(monitor);
+        }
+
+        singleBranch = singleBranch && StringUtils.isNotEmpty(branch);
+
         if (StringUtils.isNotEmpty(branch)) {
             command.setBranch(branch);
         }
+        if (singleBranch) {
+            command.setCloneAllBranches(false);
+            command.setBranchesToClone(Collections.singletonList(Constants.R_HEADS + Repository.shortenRefName(branch)));
+        }
 
         if (authConfigurator != null) {
             authConfigurator.configureAuthentication(command);
@@ -120,11 +169,32 @@ public abstract class GitUtils {
         config.setString(CORE_CONFIG_SECTION, null, BIG_FILE_THRESHOLD_CONFIG_PARAM, bigFileThreshold);
         config.setInt(CORE_CONFIG_SECTION, null, COMPRESSION_CONFIG_PARAM, compression);
         config.setBoolean(CORE_CONFIG_SECTION, null, FILE_MODE_CONFIG_PARAM, fileMode);
+
+        if (singleBranch) {
+            // Like git clone --single-branch, make the following fetches also track just the cloned branch
+            config.setStringList(REMOTE_CONFIG_SECTION, Constants.DEFAULT_REMOTE_NAME, FETCH_CONFIG_PARAM,
+                                 Collections.singletonList(getBranchRefSpec(branch).toString()));
+        }
+
         config.save();
 
         return git;
     }
 
+    /**
+     * Returns the ref spec that maps the specified branch of the remote repository to its remote tracking ref.
+     *
+     * @param branch the name of the branch in the remote repository
+     *
+     * @return the ref spec for the branch
+     */
+    public static RefSpec getBranchRefSpec(String branch) {
+        String branchName = Repository.shortenRefName(branch);
+
+        return new RefSpec().setForceUpdate(true).setSourceDestination(
+            Constants.R_HEADS + branchName, Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + branchName);
+    }
+
     /**
      * Execute a Git pull.
      *
@@ -154,17 +224,70 @@ public abstract class GitUtils {
      * @param git               the Git instance used to handle the repository
      * @param authConfigurator  the {@link GitAuthenticationConfigurator} class used to configure the authentication with the remote
      *                          repository
+     * @param monitor           the monitor used to track the progress of the fetch, and to cancel it (optional)
      * @return                  the result of the fetch
      * @throws GitAPIException  if a Git related error occurs
      */
-    public static FetchResult fetch(Git git, GitAuthenticationConfigurator authConfigurator) throws GitAPIException {
+    public static FetchResult fetch(Git git, GitAuthenticationConfigurator authConfigurator,
+                                    ProgressMonitor monitor) throws GitAPIException {
+        return fetch(git, authConfigurator, null, null, monitor);
+    }
+
+    /**
+     * Executes a git fetch of a single branch, into its remote tracking ref.
+     * @param git               the Git instance used to handle the repository
+     * @param authConfigurator  the {@link GitAuthenticationConfigurator} class used to configure the authentication with the remote
+     *                          repository
+     * @param branch            the name of the branch in the remote repository. If not specified, the refspecs in the
+     *                          repository config are used
+     * @param tagOpt            how tags should be fetched. If not specified, the option in the repository config is used
+     * @param monitor           the monitor used to track the progress of the fetch, and to cancel it (optional)
+     * @return                  the result of the fetch
+     * @throws GitAPIException  if a Git related error occurs
+     */
+    public static FetchResult fetch(Git git, GitAuthenticationConfigurator authConfigurator, String branch, TagOpt tagOpt,
+                                    ProgressMonitor monitor) throws GitAPIException {
         FetchCommand fetch = git.fetch();
         if(authConfigurator != null) {
             authConfigurator.configureAuthentication(fetch);
         }
+        if (StringUtils.isNotEmpty(branch)) {
+            fetch.setRefSpecs(getBranchRefSpec(branch));
+        }
+        if (tagOpt != null) {
+            fetch.setTagOpt(tagOpt);
+        }
+        if (monitor != null) {
+            fetch.setProgressMonitor(monitor);
+        }
         return fetch.call();
     }
 
+    /**
+     * Returns the ID of the commit at the tip of a branch of a remote repository, by just listing the remote refs (like
+     * git ls-remote), without fetching any objects.
+     * @param remoteRepoUrl     the URL of the remote repository
+     * @param branch            the name of the branch in the remote repository
+     * @param authConfigurator  the {@link GitAuthenticationConfigurator} class used to configure the authentication with the remote
+     *                          repository
+     * @return                  the ID of the commit at the tip of the branch, or null if the branch doesn't exist
+     * @throws GitAPIException  if a Git related error occurs
+     */
+    public static ObjectId getRemoteBranchTip(String remoteRepoUrl, String branch,
+                                              GitAuthenticationConfigurator authConfigurator) throws GitAPIException {
+        LsRemoteCommand lsRemote = Git.lsRemoteRepository();
+        lsRemote.setRemote(remoteRepoUrl);
+        lsRemote.setHeads(true);
+        if (authConfigurator != null) {
+            authConfigurator.configureAuthentication(lsRemote);
+        }
+
+        Map<String, Ref> refs = lsRemote.callAsMap();
+        Ref branchRef = refs.get(Constants.R_HEADS + Repository.shortenRefName(branch));
+
+        return branchRef != null? branchRef.getObjectId(): null;
+    }
+
     /**
      * Executes a git reset.
      * @param git               the Git instance used to handle the repository
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.concurrent;
+
+/**
+ * Task that can be ordered in a priority queue by a {@link PriorityTaskComparator}.
+ *
+ * @author avasquez
+ */
+public interface PriorityTask extends Runnable {
+
+    /**
+     * Returns the rank of the task. Tasks with a lower rank are run first.
+     */
+    long getRank();
+
+    /**
+     * Returns the sequence number of the task, used to run tasks with the same rank in the order they were created.
+     */
+    long getSequence();
+
+}
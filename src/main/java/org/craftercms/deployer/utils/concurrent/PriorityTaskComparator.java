@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.concurrent;
+
+import java.util.Comparator;
+
+/**
+ * {@link Comparator} for the tasks of a priority queue of an executor. {@link PriorityTask}s are ordered by rank and then by
+ * sequence number. Any other task is placed after them.
+ *
+ * @author avasquez
+ */
+public class PriorityTaskComparator implements Comparator<Runnable> {
+
+    @Override
+    public int compare(Runnable task1, Runnable task2) {
+        int result = Long.compare(getRank(task1), getRank(task2));
+        if (result == 0) {
+            result = Long.compare(getSequence(task1), getSequence(task2));
+        }
+
+        return result;
+    }
+
+    protected long getRank(Runnable task) {
+        return task instanceof PriorityTask ? ((PriorityTask)task).getRank() : Long.MAX_VALUE;
+    }
+
+    protected long getSequence(Runnable task) {
+        return task instanceof PriorityTask ? ((PriorityTask)task).getSequence() : Long.MAX_VALUE;
+    }
+
+}
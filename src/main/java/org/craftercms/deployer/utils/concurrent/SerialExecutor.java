@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link Executor} that runs the submitted tasks one at a time, in the order given by its task queue, by handing them over to
+ * a shared underlying executor. This makes it possible for a lot of serial executors (like one per target) to share a single
+ * bounded thread pool, instead of each one holding its own thread. If the submitted task is a {@link PriorityTask}, the task
+ * handed over to the underlying executor keeps its rank, so the underlying executor can also order them by priority.
+ *
+ * @author avasquez
+ */
+public class SerialExecutor implements Executor {
+
+    protected final Executor executor;
+    protected final Queue<Runnable> tasks;
+    protected Runnable active;
+    protected boolean shutdown;
+    protected boolean suspended;
+
+    /**
+     * Creates a serial executor that runs tasks in FIFO order.
+     *
+     * @param executor the underlying executor where the tasks are actually run
+     */
+    public SerialExecutor(Executor executor) {
+        this(executor, new ArrayDeque<>());
+    }
+
+    /**
+     * Creates a serial executor that runs tasks in the order of the specified queue.
+     *
+     * @param executor  the underlying executor where the tasks are actually run
+     * @param tasks     the queue that holds the tasks waiting to be run
+     */
+    public SerialExecutor(Executor executor, Queue<Runnable> tasks) {
+        this.executor = executor;
+        this.tasks = tasks;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shutdown");
+        }
+
+        tasks.add(task);
+
+        if (active == null) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Removes a task that's waiting to be run.
+     *
+     * @param task the task to remove
+     *
+     * @return true if the task was removed, false if it wasn't waiting to be run
+     */
+    public synchronized boolean remove(Runnable task) {
+        return tasks.remove(task);
+    }
+
+    /**
+     * Returns true if there's currently a task running or waiting to be run.
+     */
+    public synchronized boolean isBusy() {
+        return active != null || !tasks.isEmpty();
+    }
+
+    /**
+     * Stops handing over tasks to the underlying executor. Tasks are still accepted, and wait until {@link #resume()} is
+     * called. A task that's already running isn't affected.
+     */
+    public synchronized void suspend() {
+        suspended = true;
+    }
+
+    /**
+     * Starts handing over tasks to the underlying executor again, after a call to {@link #suspend()}.
+     */
+    public synchronized void resume() {
+        suspended = false;
+
+        if (active == null && !shutdown) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Stops accepting new tasks, removes the tasks that are waiting to be run and attempts to stop the active task. Tasks that are
+     * {@link Future}s are cancelled, so that any thread waiting on them is released.
+     *
+     * @return the tasks that never started execution
+     */
+    public synchronized List<Runnable> shutdownNow() {
+        shutdown = true;
+
+        List<Runnable> pendingTasks = new ArrayList<>(tasks);
+        tasks.clear();
+
+        for (Runnable task : pendingTasks) {
+            if (task instanceof Future) {
+                ((Future<?>)task).cancel(false);
+            }
+        }
+
+        if (active instanceof Future) {
+            ((Future<?>)active).cancel(true);
+        }
+
+        return pendingTasks;
+    }
+
+    protected synchronized void scheduleNext() {
+        active = suspended ? null : tasks.poll();
+
+        if (active != null) {
+            Runnable task = active;
+
+            try {
+                executor.execute(new SerialTask(task));
+            } catch (RejectedExecutionException e) {
+                active = null;
+
+                if (task instanceof Future) {
+                    ((Future<?>)task).cancel(false);
+                }
+
+                throw e;
+            }
+        }
+    }
+
+    protected class SerialTask implements PriorityTask {
+
+        protected final Runnable task;
+
+        public SerialTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public long getRank() {
+            return task instanceof PriorityTask ? ((PriorityTask)task).getRank() : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long getSequence() {
+            return task instanceof PriorityTask ? ((PriorityTask)task).getSequence() : Long.MAX_VALUE;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                scheduleNext();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.scheduling;
+
+import java.util.Date;
+
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+
+/**
+ * {@link Trigger} that fires with a fixed delay after the last completion, where the delay can change between executions: each
+ * call to {@link #backOff()} doubles it, up to a max interval, and {@link #reset()} sets it back to the min interval.
+ *
+ * @author avasquez
+ */
+public class AdaptiveIntervalTrigger implements Trigger {
+
+    protected final long minInterval;
+    protected final long maxInterval;
+    protected volatile long currentInterval;
+
+    /**
+     * Creates the trigger.
+     *
+     * @param minInterval   the min (and initial) interval between executions, in milliseconds
+     * @param maxInterval   the max interval between executions, in milliseconds
+     */
+    public AdaptiveIntervalTrigger(long minInterval, long maxInterval) {
+        if (minInterval <= 0 || maxInterval < minInterval) {
+            throw new IllegalArgumentException("Invalid intervals: min = " + minInterval + ", max = " + maxInterval);
+        }
+
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.currentInterval = minInterval;
+    }
+
+    /**
+     * Returns the current interval between executions, in milliseconds.
+     */
+    public long getCurrentInterval() {
+        return currentInterval;
+    }
+
+    /**
+     * Doubles the current interval, without exceeding the max interval.
+     */
+    public synchronized void backOff() {
+        currentInterval = Math.min(currentInterval * 2, maxInterval);
+    }
+
+    /**
+     * Sets the current interval back to the min interval.
+     *
+     * @return true if the interval was changed, false if it already was the min interval
+     */
+    public synchronized boolean reset() {
+        boolean changed = currentInterval != minInterval;
+
+        currentInterval = minInterval;
+
+        return changed;
+    }
+
+    @Override
+    public Date nextExecutionTime(TriggerContext triggerContext) {
+        Date lastCompletionTime = triggerContext.lastCompletionTime();
+        long base = lastCompletionTime != null ? lastCompletionTime.getTime() : System.currentTimeMillis();
+
+        return new Date(base + currentInterval);
+    }
+
+}
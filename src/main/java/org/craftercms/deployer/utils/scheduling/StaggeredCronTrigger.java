@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.scheduling;
+
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+/**
+ * {@link Trigger} that fires at the times of a cron expression, but shifted by a fixed offset that's derived from a key (like
+ * the target ID). The offset is always less than the smallest interval between two consecutive executions of the cron, so
+ * when a lot of triggers share the same cron expression, their executions are spread across the interval instead of all firing
+ * at the same time. Since the offset only depends on the key, a trigger always fires at the same point of the interval.
+ *
+ * @author avasquez
+ */
+public class StaggeredCronTrigger implements Trigger {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // 28 years, after which the days of the week repeat on the same dates, including leap days
+    private static final long CYCLE_MILLIS = TimeUnit.DAYS.toMillis(10227);
+    // 2000-01-01T00:00:00Z
+    private static final long REFERENCE_TIME = 946684800000L;
+    private static final ConcurrentMap<String, Long> MIN_INTERVALS = new ConcurrentHashMap<>();
+
+    protected CronTrigger cronTrigger;
+    protected long offset;
+
+    public StaggeredCronTrigger(String cronExpression, String key) {
+        this.cronTrigger = new CronTrigger(cronExpression);
+        this.offset = getOffset(cronExpression, key);
+    }
+
+    /**
+     * Returns the offset, in milliseconds, that's added to each execution time of the cron expression.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public Date nextExecutionTime(TriggerContext triggerContext) {
+        Date lastCompletionTime = triggerContext.lastCompletionTime();
+        if (lastCompletionTime == null) {
+            // First execution, calculate it from now
+            lastCompletionTime = new Date();
+        }
+
+        // Remove the offset from the context dates, so that the next time is calculated from the original cron schedule
+        TriggerContext cronContext = new SimpleTriggerContext(shift(triggerContext.lastScheduledExecutionTime(), -offset),
+                                                              shift(triggerContext.lastActualExecutionTime(), -offset),
+                                                              shift(lastCompletionTime, -offset));
+        Date next = cronTrigger.nextExecutionTime(cronContext);
+
+        return shift(next, offset);
+    }
+
+    protected static long getOffset(String cronExpression, String key) {
+        long interval = MIN_INTERVALS.computeIfAbsent(cronExpression, StaggeredCronTrigger::getMinInterval);
+
+        // Spread the hash bits before the modulo, since similar keys tend to have similar hash codes
+        long hash = key.hashCode() * 0x9E3779B97F4A7C15L;
+
+        return Math.floorMod(hash ^ (hash >>> 32), interval);
+    }
+
+    /**
+     * Returns the smallest interval between two consecutive executions of the cron expression over a full cycle of the
+     * cron, calculated from a fixed reference date so that it doesn't depend on when it's called. The times of the day are
+     * the same every day the cron runs, so the intervals of a single day are checked first, and then the intervals between
+     * the last execution of each day and the first execution of the next day the cron runs.
+     */
+    protected static long getMinInterval(String cronExpression) {
+        CronSequenceGenerator sequenceGenerator = new CronSequenceGenerator(cronExpression, UTC);
+        long minInterval = Long.MAX_VALUE;
+
+        Date firstTime = sequenceGenerator.next(new Date(REFERENCE_TIME - 1));
+        long firstDay = truncateToDay(firstTime.getTime());
+        long firstTimeOfDay = firstTime.getTime() - firstDay;
+        long lastTimeOfDay = firstTimeOfDay;
+
+        for (Date time = sequenceGenerator.next(firstTime);
+             time.getTime() < firstDay + DAY_MILLIS;
+             time = sequenceGenerator.next(time)) {
+            long timeOfDay = time.getTime() - firstDay;
+
+            minInterval = Math.min(minInterval, timeOfDay - lastTimeOfDay);
+            lastTimeOfDay = timeOfDay;
+        }
+
+        long day = firstDay;
+        while (day - firstDay < CYCLE_MILLIS) {
+            Date nextDayTime;
+            try {
+                nextDayTime = sequenceGenerator.next(new Date(day + DAY_MILLIS - 1));
+            } catch (IllegalArgumentException e) {
+                // The cron doesn't have any more executions in the year after the day
+                break;
+            }
+
+            long nextDay = truncateToDay(nextDayTime.getTime());
+
+            minInterval = Math.min(minInterval, nextDay + firstTimeOfDay - (day + lastTimeOfDay));
+            day = nextDay;
+        }
+
+        return minInterval;
+    }
+
+    protected static long truncateToDay(long time) {
+        return time - Math.floorMod(time, DAY_MILLIS);
+    }
+
+    protected static Date shift(Date date, long millis) {
+        return date != null ? new Date(date.getTime() + millis) : null;
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.io.FileSystemResource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link BaseTargetConfigCache}.
+ *
+ * @author avasquez
+ */
+public class BaseTargetConfigCacheTest {
+
+    private static final String BEANS_XML =
+        "<beans xmlns=\"http://www.springframework.org/schema/beans\" " +
+        "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
+        "xsi:schemaLocation=\"http://www.springframework.org/schema/beans " +
+        "http://www.springframework.org/schema/beans/spring-beans.xsd\">" +
+        "<bean id=\"foo\" class=\"java.lang.String\"/>" +
+        "</beans>";
+
+    private File folder;
+    private File baseYamlFile;
+    private File baseContextFile;
+    private BaseTargetConfigCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        folder = Files.createTempDirectory("base-target").toFile();
+        baseYamlFile = new File(folder, "base-target.yaml");
+        baseContextFile = new File(folder, "base-target-context.xml");
+
+        FileUtils.write(baseYamlFile, "target:\n  foo: bar\n", "UTF-8");
+        FileUtils.write(baseContextFile, BEANS_XML, "UTF-8");
+
+        cache = new BaseTargetConfigCache(new FileSystemResource(baseYamlFile),
+                                          new FileSystemResource(new File(folder, "base-target-override.yaml")),
+                                          new FileSystemResource(baseContextFile),
+                                          new FileSystemResource(new File(folder, "base-target-context-override.xml")));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.forceDelete(folder);
+    }
+
+    @Test
+    public void testGetBaseYamlConfigurations() throws Exception {
+        List<HierarchicalConfiguration> configs = cache.getBaseYamlConfigurations();
+
+        assertEquals(1, configs.size());
+        assertEquals("bar", configs.get(0).getString("target.foo"));
+
+        // Changes to a copy shouldn't affect the cached configuration
+        configs.get(0).setProperty("target.foo", "baz");
+
+        assertEquals("bar", cache.getBaseYamlConfigurations().get(0).getString("target.foo"));
+
+        FileUtils.write(baseYamlFile, "target:\n  foo: foobar\n", "UTF-8");
+
+        assertEquals("foobar", cache.getBaseYamlConfigurations().get(0).getString("target.foo"));
+    }
+
+    @Test
+    public void testGetFingerprint() throws Exception {
+        String fingerprint1 = cache.getFingerprint();
+
+        assertEquals(fingerprint1, cache.getFingerprint());
+
+        // Same content with a newer last modified date
+        assertTrue(baseYamlFile.setLastModified(baseYamlFile.lastModified() + 5000));
+
+        assertEquals(fingerprint1, cache.getFingerprint());
+
+        // Different content with the same length and last modified date
+        long lastModified = baseYamlFile.lastModified();
+        FileUtils.write(baseYamlFile, "target:\n  foo: baz\n", "UTF-8");
+        assertTrue(baseYamlFile.setLastModified(lastModified));
+
+        String fingerprint2 = cache.getFingerprint();
+
+        assertNotEquals(fingerprint1, fingerprint2);
+        // The change should also be visible in the cached configuration
+        assertEquals("baz", cache.getBaseYamlConfigurations().get(0).getString("target.foo"));
+    }
+
+    @Test
+    public void testRegisterBaseBeanDefinitions() throws Exception {
+        DefaultListableBeanFactory registry1 = new DefaultListableBeanFactory();
+        DefaultListableBeanFactory registry2 = new DefaultListableBeanFactory();
+
+        cache.registerBaseBeanDefinitions(registry1);
+        cache.registerBaseBeanDefinitions(registry2);
+
+        assertTrue(registry1.containsBeanDefinition("foo"));
+        assertTrue(registry2.containsBeanDefinition("foo"));
+        assertNotSame(registry1.getBeanDefinition("foo"), registry2.getBeanDefinition("foo"));
+    }
+
+}
@@ -16,12 +16,14 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.core.env.PropertySource;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_DEPLOYMENT_PIPELINE_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_ID_CONFIG_KEY;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 public class DeploymentPipelineFactoryImplTest {
@@ -32,7 +34,7 @@ public class DeploymentPipelineFactoryImplTest {
 
     @Before
     public void setUp() throws Exception {
-        deploymentPipelineFactory = new DeploymentPipelineFactoryImpl();
+        deploymentPipelineFactory = new DeploymentPipelineFactoryImpl(mock(TaskScheduler.class));
         config = createConfiguration();
         applicationContext = createApplicationContext();
     }
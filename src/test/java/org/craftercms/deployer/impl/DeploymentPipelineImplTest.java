@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.DeploymentProcessor;
+import org.craftercms.deployer.api.Target;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DeploymentPipelineImpl}.
+ *
+ * @author avasquez
+ */
+public class DeploymentPipelineImplTest {
+
+    private ThreadPoolTaskScheduler taskScheduler;
+    private DeploymentProcessor slowProcessor;
+    private DeploymentProcessor fastProcessor;
+
+    @Before
+    public void setUp() throws Exception {
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.initialize();
+
+        slowProcessor = createSlowProcessor();
+        fastProcessor = mock(DeploymentProcessor.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        taskScheduler.shutdown();
+    }
+
+    @Test
+    public void testProcessorTimeout() throws Exception {
+        when(slowProcessor.getTimeout()).thenReturn(500L);
+
+        DeploymentPipelineImpl pipeline = new DeploymentPipelineImpl(Arrays.asList(slowProcessor, fastProcessor), 0,
+                                                                     taskScheduler);
+        Deployment deployment = new Deployment(mock(Target.class));
+
+        long start = System.currentTimeMillis();
+        pipeline.execute(deployment);
+
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(Deployment.Status.SUCCESS, deployment.getStatus());
+        assertFalse(deployment.isCancelled());
+
+        verify(slowProcessor).cancel(deployment);
+        verify(fastProcessor).execute(deployment);
+    }
+
+    @Test
+    public void testDeploymentTimeout() throws Exception {
+        DeploymentPipelineImpl pipeline = new DeploymentPipelineImpl(Arrays.asList(slowProcessor, fastProcessor), 500,
+                                                                     taskScheduler);
+        Deployment deployment = new Deployment(mock(Target.class));
+
+        long start = System.currentTimeMillis();
+        pipeline.execute(deployment);
+
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(Deployment.Status.FAILURE, deployment.getStatus());
+        assertTrue(deployment.isCancelled());
+
+        verify(slowProcessor).cancel(deployment);
+        // The remaining processors are still called, but the deployment is no longer running
+        verify(fastProcessor).execute(deployment);
+        verify(fastProcessor, never()).cancel(any(Deployment.class));
+    }
+
+    @Test
+    public void testDeploymentTimeoutAfterEnd() throws Exception {
+        DeploymentProcessor endingProcessor = mock(DeploymentProcessor.class);
+        doAnswer(invocationOnMock -> {
+            ((Deployment)invocationOnMock.getArguments()[0]).end(Deployment.Status.FAILURE);
+
+            return null;
+        }).when(endingProcessor).execute(any(Deployment.class));
+
+        // Like a notification processor, which reports the deployment after it has ended
+        AtomicBoolean interrupted = new AtomicBoolean();
+        DeploymentProcessor reportingProcessor = mock(DeploymentProcessor.class);
+        doAnswer(invocationOnMock -> {
+            try {
+                Thread.sleep(1500);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+
+            return null;
+        }).when(reportingProcessor).execute(any(Deployment.class));
+
+        DeploymentPipelineImpl pipeline = new DeploymentPipelineImpl(Arrays.asList(endingProcessor, reportingProcessor), 500,
+                                                                     taskScheduler);
+        Deployment deployment = new Deployment(mock(Target.class));
+
+        pipeline.execute(deployment);
+
+        assertFalse(interrupted.get());
+        assertFalse(deployment.isCancelled());
+        assertEquals(Deployment.Status.FAILURE, deployment.getStatus());
+        verify(reportingProcessor, never()).cancel(any(Deployment.class));
+        assertFalse(pipeline.cancel(deployment));
+    }
+
+    private DeploymentProcessor createSlowProcessor() {
+        DeploymentProcessor processor = mock(DeploymentProcessor.class);
+        doAnswer(invocationOnMock -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                // Expected on timeout
+            }
+
+            return null;
+        }).when(processor).execute(any(Deployment.class));
+
+        return processor;
+    }
+
+}
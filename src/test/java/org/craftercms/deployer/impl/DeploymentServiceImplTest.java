@@ -18,19 +18,37 @@ package org.craftercms.deployer.impl;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
 
+import org.apache.commons.configuration2.Configuration;
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.Target;
+import org.craftercms.deployer.api.TargetDeploymentResult;
 import org.craftercms.deployer.api.TargetService;
+import org.craftercms.deployer.api.exceptions.DeploymentQueueFullException;
+import org.craftercms.deployer.utils.ConfigUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.scheduling.TaskScheduler;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -44,23 +62,58 @@ public class DeploymentServiceImplTest {
     private DeploymentServiceImpl deploymentService;
     private Target foobarTarget;
     private Target barfooTarget;
+    private TaskScheduler taskScheduler;
 
     @Before
     public void setUp() throws Exception {
-        deploymentService = new DeploymentServiceImpl(createTargetService());
+        deploymentService = new DeploymentServiceImpl(createTargetService(), createTaskScheduler(),
+                                                      mock(ProcessedCommitsStore.class), 5000);
     }
 
     @Test
     public void testDeployAllTargets() throws Exception {
-        List<Deployment> deployments = deploymentService.deployAllTargets(false, Collections.emptyMap());
+        List<TargetDeploymentResult> results = deploymentService.deployAllTargets(false, Collections.emptyMap());
 
-        assertNotNull(deployments);
-        assertEquals(2, deployments.size());
+        assertNotNull(results);
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertNotNull(results.get(0).getDeployment());
 
         verify(foobarTarget).deploy(eq(false), any());
         verify(barfooTarget).deploy(eq(false), any());
     }
 
+    @Test
+    public void testDeployAllTargetsWithFilter() throws Exception {
+        List<TargetDeploymentResult> results = deploymentService.deployAllTargets("test", "foo.*", true,
+                                                                                  Collections.emptyMap());
+
+        assertEquals(1, results.size());
+        assertEquals("foobar-test", results.get(0).getTargetId());
+        assertTrue(results.get(0).getDeployment().getDoneFuture().isDone());
+
+        verify(foobarTarget).deploy(eq(false), any());
+        verify(barfooTarget, never()).deploy(eq(false), any());
+
+        results = deploymentService.deployAllTargets("dev", null, true, Collections.emptyMap());
+
+        assertEquals(0, results.size());
+    }
+
+    @Test
+    public void testDeployAllTargetsWithFullQueue() throws Exception {
+        when(barfooTarget.deploy(eq(false), any())).thenThrow(new DeploymentQueueFullException("barfoo-test"));
+
+        List<TargetDeploymentResult> results = deploymentService.deployAllTargets(true, Collections.emptyMap());
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("barfoo-test", results.get(1).getTargetId());
+        assertNull(results.get(1).getDeployment());
+        assertNotNull(results.get(1).getError());
+    }
+
     @Test
     public void testDeployTarget() throws Exception {
         Deployment deployment = deploymentService.deployTarget("test", "foobar", false, Collections.emptyMap());
@@ -70,12 +123,86 @@ public class DeploymentServiceImplTest {
         verify(foobarTarget).deploy(eq(false), any());
     }
 
+    @Test
+    public void testDeployTargetsOnPush() throws Exception {
+        List<Target> targets = deploymentService.deployTargetsOnPush("https://github.com/foo/bar.git", "refs/heads/master",
+                                                                     null, Collections.emptyMap());
+
+        assertEquals(1, targets.size());
+        assertSame(foobarTarget, targets.get(0));
+
+        ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(taskCaptor.capture(), isA(Date.class));
+        verify(foobarTarget, never()).deploy(eq(Deployment.Priority.PUSH), eq(false), any());
+
+        // Second push before the delay ends, the first deployment should be cancelled
+        ScheduledFuture<?> firstFuture = deploymentService.pendingPushDeployments.get("foobar-test");
+        deploymentService.deployTargetsOnPush("https://github.com/foo/bar", "master", null, Collections.emptyMap());
+
+        verify(firstFuture).cancel(false);
+        verify(taskScheduler, times(2)).schedule(taskCaptor.capture(), isA(Date.class));
+
+        taskCaptor.getValue().run();
+
+        verify(foobarTarget).deploy(eq(Deployment.Priority.PUSH), eq(false), any());
+        verify(barfooTarget, never()).deploy(eq(Deployment.Priority.PUSH), eq(false), any());
+    }
+
+    @Test
+    public void testDeployTargetsOnPushWhileRunning() throws Exception {
+        deploymentService.deployTargetsOnPush("https://github.com/foo/bar.git", "master", null, Collections.emptyMap());
+
+        ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(taskCaptor.capture(), isA(Date.class));
+
+        Runnable firstTask = taskCaptor.getValue();
+
+        // Second push while the first deployment task is already running (so it can't be cancelled)
+        deploymentService.deployTargetsOnPush("https://github.com/foo/bar.git", "master", null, Collections.emptyMap());
+
+        ScheduledFuture<?> secondFuture = deploymentService.pendingPushDeployments.get("foobar-test");
+
+        firstTask.run();
+
+        // The first task shouldn't remove the pending deployment of the second push
+        assertSame(secondFuture, deploymentService.pendingPushDeployments.get("foobar-test"));
+
+        // So a third push still debounces the second one
+        deploymentService.deployTargetsOnPush("https://github.com/foo/bar.git", "master", null, Collections.emptyMap());
+
+        verify(secondFuture).cancel(false);
+    }
+
+    private TaskScheduler createTaskScheduler() {
+        taskScheduler = mock(TaskScheduler.class);
+
+        doAnswer(invocation -> mock(ScheduledFuture.class)).when(taskScheduler).schedule(isA(Runnable.class),
+                                                                                         isA(Date.class));
+
+        return taskScheduler;
+    }
+
     private TargetService createTargetService() throws Exception {
         foobarTarget = mock(Target.class);
         barfooTarget = mock(Target.class);
 
-        when(foobarTarget.deploy(eq(false), any())).thenReturn(mock(Deployment.class));
-        when(barfooTarget.deploy(eq(false), any())).thenReturn(mock(Deployment.class));
+        Deployment foobarDeployment = mock(Deployment.class);
+        Deployment barfooDeployment = mock(Deployment.class);
+
+        when(foobarDeployment.getDoneFuture()).thenReturn(CompletableFuture.completedFuture(foobarDeployment));
+        when(barfooDeployment.getDoneFuture()).thenReturn(CompletableFuture.completedFuture(barfooDeployment));
+
+        when(foobarTarget.deploy(eq(false), any())).thenReturn(foobarDeployment);
+        when(barfooTarget.deploy(eq(false), any())).thenReturn(barfooDeployment);
+
+        when(foobarTarget.getId()).thenReturn("foobar-test");
+        when(foobarTarget.getEnv()).thenReturn("test");
+        when(foobarTarget.getSiteName()).thenReturn("foobar");
+        when(foobarTarget.getConfiguration()).thenReturn(createRemoteTargetConfig("https://github.com/foo/bar.git", null));
+        when(barfooTarget.getId()).thenReturn("barfoo-test");
+        when(barfooTarget.getEnv()).thenReturn("test");
+        when(barfooTarget.getSiteName()).thenReturn("barfoo");
+        when(barfooTarget.getConfiguration()).thenReturn(createRemoteTargetConfig("https://github.com/foo/bar.git", "dev"));
 
         TargetService targetService = mock(TargetService.class);
         when(targetService.getAllTargets()).thenReturn(Arrays.asList(foobarTarget, barfooTarget));
@@ -84,4 +211,17 @@ public class DeploymentServiceImplTest {
         return targetService;
     }
 
+    private Configuration createRemoteTargetConfig(String repoUrl, String branch)
+        throws Exception {
+        String yaml = "target:\n" +
+                      "  deployment:\n" +
+                      "    pipeline:\n" +
+                      "      - processorName: gitPullProcessor\n" +
+                      "        remoteRepo:\n" +
+                      "          url: " + repoUrl + "\n" +
+                      (branch != null ? "          branch: " + branch + "\n" : "");
+
+        return ConfigUtils.loadYamlConfiguration(new ByteArrayResource(yaml.getBytes()));
+    }
+
 }
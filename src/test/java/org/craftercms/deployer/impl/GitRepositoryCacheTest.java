@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for {@link GitRepositoryCache}.
+ *
+ * @author avasquez
+ */
+public class GitRepositoryCacheTest {
+
+    private File repoFolder;
+    private ObjectId headId;
+    private GitRepositoryCache repositoryCache;
+
+    @Before
+    public void setUp() throws Exception {
+        repoFolder = Files.createTempDirectory("git-repository-cache-test").toFile();
+
+        try (Git git = Git.init().setDirectory(repoFolder).call()) {
+            headId = git.commit().setMessage("Initial commit").call();
+        }
+
+        repositoryCache = new GitRepositoryCache();
+        repositoryCache.setLocalRepoFolder(repoFolder);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repositoryCache.destroy();
+
+        FileUtils.forceDelete(repoFolder);
+    }
+
+    @Test
+    public void testOpen() throws Exception {
+        Repository repository;
+
+        try (Git git = repositoryCache.open()) {
+            repository = git.getRepository();
+
+            assertEquals(headId, repository.resolve(Constants.HEAD));
+        }
+        try (Git git = repositoryCache.open()) {
+            assertSame(repository, git.getRepository());
+            assertEquals(headId, git.getRepository().resolve(Constants.HEAD));
+        }
+
+        assertEquals(1, repositoryCache.getOpenCount());
+        assertEquals(1, repositoryCache.getReuseCount());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        try (Git git = repositoryCache.open()) {
+            repositoryCache.invalidate();
+
+            // The repository should still be usable until it's closed
+            assertEquals(headId, git.getRepository().resolve(Constants.HEAD));
+
+            try (Git newGit = repositoryCache.open()) {
+                assertNotSame(git.getRepository(), newGit.getRepository());
+            }
+        }
+
+        assertEquals(2, repositoryCache.getOpenCount());
+        assertEquals(0, repositoryCache.getReuseCount());
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link SharedServicePool} and {@link SharedServiceFactoryBean}.
+ *
+ * @author avasquez
+ */
+public class SharedServicePoolTest {
+
+    private SharedServicePool servicePool;
+
+    @Before
+    public void setUp() throws Exception {
+        servicePool = new SharedServicePool();
+    }
+
+    @Test
+    public void testAcquireAndRelease() throws Exception {
+        DisposableBean service = mock(DisposableBean.class);
+
+        assertSame(service, servicePool.acquire("foo", () -> service));
+        assertSame(service, servicePool.acquire("foo", () -> mock(DisposableBean.class)));
+
+        servicePool.release("foo");
+
+        verify(service, never()).destroy();
+        assertEquals(1, servicePool.size());
+
+        servicePool.release("foo");
+
+        verify(service).destroy();
+        assertEquals(0, servicePool.size());
+    }
+
+    @Test
+    public void testSharedServiceFactoryBean() throws Exception {
+        GenericApplicationContext context1 = createContext("foo");
+        GenericApplicationContext context2 = createContext("foo");
+        GenericApplicationContext context3 = createContext("bar");
+
+        assertSame(context1.getBean("service"), context2.getBean("service"));
+        assertNotSame(context1.getBean("service"), context3.getBean("service"));
+        assertEquals(2, servicePool.size());
+
+        context1.close();
+        context3.close();
+
+        assertEquals(1, servicePool.size());
+
+        context2.close();
+
+        assertEquals(0, servicePool.size());
+    }
+
+    private GenericApplicationContext createContext(String key) {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBeanDefinition("service", BeanDefinitionBuilder.genericBeanDefinition(SharedServiceFactoryBean.class)
+                                                                       .addPropertyValue("servicePool", servicePool)
+                                                                       .addPropertyValue("key", key)
+                                                                       .addPropertyValue("targetBeanName", "serviceInstance")
+                                                                       .getBeanDefinition());
+        context.registerBeanDefinition("serviceInstance", BeanDefinitionBuilder.genericBeanDefinition(StringBuilder.class)
+                                                                               .setScope("prototype")
+                                                                               .getBeanDefinition());
+        context.refresh();
+
+        return context;
+    }
+
+}
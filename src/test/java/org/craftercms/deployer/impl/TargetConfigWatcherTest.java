@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.apache.commons.io.FileUtils;
+import org.craftercms.deployer.api.TargetService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TargetConfigWatcher}.
+ *
+ * @author avasquez
+ */
+public class TargetConfigWatcherTest {
+
+    private static final long DEBOUNCE_DELAY = 500;
+
+    private File targetConfigFolder;
+    private ThreadPoolTaskScheduler taskScheduler;
+    private TargetService targetService;
+    private TargetConfigWatcher watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        targetConfigFolder = Files.createTempDirectory("target-config-watcher-test").toFile();
+
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.initialize();
+
+        targetService = mock(TargetService.class);
+        watcher = new TargetConfigWatcher(targetConfigFolder, true, DEBOUNCE_DELAY, targetService, taskScheduler);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        watcher.stop();
+        taskScheduler.shutdown();
+
+        FileUtils.forceDelete(targetConfigFolder);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testResolveChangedTargets() throws Exception {
+        watcher.start();
+
+        File configFile = new File(targetConfigFolder, "foobar-test.yaml");
+        File contextFile = new File(targetConfigFolder, "foobar-test-context.xml");
+
+        FileUtils.write(configFile, "target:\n  env: test\n", "UTF-8");
+        FileUtils.write(contextFile, "<beans/>", "UTF-8");
+
+        // Both changes should be resolved in a single batch after the debounce delay
+        ArgumentCaptor<Collection> filesCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(targetService, timeout(5000)).resolveTargets(filesCaptor.capture());
+
+        assertEquals(new HashSet<>(Arrays.asList(configFile, contextFile)), new HashSet<>(filesCaptor.getValue()));
+
+        Thread.sleep(DEBOUNCE_DELAY * 2);
+
+        verify(targetService).resolveTargets(anyCollection());
+        verify(targetService, never()).resolveTargets();
+    }
+
+    @Test
+    public void testFullScanOnOverflow() throws Exception {
+        WatchEvent<?> overflowEvent = mock(WatchEvent.class);
+        doReturn(OVERFLOW).when(overflowEvent).kind();
+
+        WatchKey key = mock(WatchKey.class);
+        doReturn(Collections.singletonList(overflowEvent)).when(key).pollEvents();
+        when(key.reset()).thenReturn(true);
+
+        WatchService watchService = mock(WatchService.class);
+        when(watchService.take()).thenReturn(key).thenThrow(new ClosedWatchServiceException());
+
+        watcher.watchService = watchService;
+        try {
+            watcher.watch();
+        } finally {
+            watcher.watchService = null;
+        }
+
+        verify(targetService, timeout(5000)).resolveTargets();
+        verify(targetService, never()).resolveTargets(anyCollection());
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        watcher.start();
+
+        Thread watchThread = watcher.watchThread;
+
+        watcher.stop();
+        watchThread.join(5000);
+
+        assertFalse(watchThread.isAlive());
+
+        FileUtils.write(new File(targetConfigFolder, "foobar-test.yaml"), "target:\n  env: test\n", "UTF-8");
+
+        Thread.sleep(DEBOUNCE_DELAY * 2);
+
+        verify(targetService, never()).resolveTargets(anyCollection());
+    }
+
+}
@@ -16,18 +16,46 @@
  */
 package org.craftercms.deployer.impl;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.DeploymentPipeline;
+import org.craftercms.deployer.api.exceptions.DeploymentQueueFullException;
+import org.craftercms.deployer.utils.scheduling.AdaptiveIntervalTrigger;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
 
+import static org.craftercms.deployer.impl.DeploymentConstants.REPROCESS_ALL_FILES_PARAM_NAME;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Unit tests for {@link TargetImpl}.
@@ -40,12 +68,20 @@ public class TargetImplTest {
     private static final String TEST_SITE_NAME = "test";
 
     private volatile int count;
+    private ExecutorService deploymentExecutor;
     private TargetImpl target;
 
     @Before
     public void setUp() throws Exception {
         count = 0;
-        target = new TargetImpl(TEST_ENV, TEST_SITE_NAME, createDeploymentPipeline(), null, null, null);
+        // Use more than one thread to make sure deployments of the same target are still serialized
+        deploymentExecutor = Executors.newFixedThreadPool(3);
+        target = new TargetImpl(TEST_ENV, TEST_SITE_NAME, createDeploymentPipeline(), null, null, null, deploymentExecutor);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        deploymentExecutor.shutdownNow();
     }
 
     @Test
@@ -64,9 +100,269 @@ public class TargetImplTest {
         assertEquals(Deployment.Status.SUCCESS, dep2.getStatus());
         assertNotNull(dep3.getEnd());
         assertEquals(Deployment.Status.SUCCESS, dep3.getStatus());
+        assertSame(dep3, dep3.getDoneFuture().getNow(null));
         assertEquals(3, count);
     }
 
+    @Test
+    public void testDeployWithCoalescing() throws Exception {
+        target.setDeploymentCoalescingEnabled(true);
+
+        Deployment dep1 = target.deploy(false, new HashMap<>());
+
+        // Wait for the first deployment to start, so that the next ones are merged into a single pending deployment
+        Thread.sleep(500);
+
+        Deployment dep2 = target.deploy(false, Collections.singletonMap(REPROCESS_ALL_FILES_PARAM_NAME, "false"));
+        Deployment dep3 = target.deploy(false, Collections.singletonMap(REPROCESS_ALL_FILES_PARAM_NAME, true));
+
+        assertNotSame(dep1, dep2);
+        assertSame(dep2, dep3);
+        assertEquals(2, target.getAllDeployments().size());
+        assertEquals(true, dep2.getParam(REPROCESS_ALL_FILES_PARAM_NAME));
+
+        Thread.sleep(5000);
+
+        assertEquals(Deployment.Status.SUCCESS, dep1.getStatus());
+        assertEquals(Deployment.Status.SUCCESS, dep2.getStatus());
+        assertEquals(2, count);
+    }
+
+    @Test
+    public void testDeployWithPriority() throws Exception {
+        target.setDeploymentPriorityAgingInterval(60000);
+
+        Deployment dep1 = target.deploy(Deployment.Priority.MANUAL, false, new HashMap<>());
+
+        // Wait for the first deployment to start, so that the next ones are queued
+        Thread.sleep(500);
+
+        Deployment dep2 = target.deploy(Deployment.Priority.SCHEDULED, false, new HashMap<>());
+        Deployment dep3 = target.deploy(Deployment.Priority.MANUAL, false,
+                                        Collections.singletonMap(REPROCESS_ALL_FILES_PARAM_NAME, true));
+        Deployment dep4 = target.deploy(Deployment.Priority.PUSH, false, new HashMap<>());
+
+        assertEquals(Deployment.Priority.FULL_REPROCESS, dep3.getPriority());
+
+        Thread.sleep(8000);
+
+        assertEquals(4, count);
+        assertTrue(dep4.getStart().isBefore(dep2.getStart()));
+        assertTrue(dep2.getStart().isBefore(dep3.getStart()));
+        assertTrue(dep1.getStart().isBefore(dep4.getStart()));
+    }
+
+    @Test
+    public void testDeployWithFullQueue() throws Exception {
+        target.setMaxPendingDeployments(1);
+        target.setQueueFullPolicy(TargetImpl.QueueFullPolicy.DROP_OLDEST_SCHEDULED);
+
+        Deployment dep1 = target.deploy(false, new HashMap<>());
+
+        // Wait for the first deployment to start, so that the next ones are queued
+        Thread.sleep(500);
+
+        Deployment dep2 = target.deploy(Deployment.Priority.SCHEDULED, false, new HashMap<>());
+        // The queue is full, so the pending scheduled deployment should be dropped
+        Deployment dep3 = target.deploy(false, new HashMap<>());
+
+        assertTrue(dep2.isCancelled());
+        assertTrue(dep2.getDoneFuture().isCancelled());
+        assertEquals(1, target.getDroppedDeploymentCount());
+
+        try {
+            // No scheduled deployment left to drop
+            target.deploy(false, new HashMap<>());
+            fail("Expected " + DeploymentQueueFullException.class.getSimpleName());
+        } catch (DeploymentQueueFullException e) {
+            assertEquals(1, target.getRejectedDeploymentCount());
+        }
+
+        dep3.getDoneFuture().get(10, TimeUnit.SECONDS);
+
+        assertEquals(Deployment.Status.SUCCESS, dep1.getStatus());
+        assertEquals(Deployment.Status.SUCCESS, dep3.getStatus());
+        assertNull(dep2.getStart());
+        assertEquals(2, count);
+    }
+
+    @Test
+    public void testDeploymentEvents() throws Exception {
+        List<Deployment.Event> events = new CopyOnWriteArrayList<>();
+
+        target.deploy(false, new HashMap<>());
+
+        // The second deployment stays pending while the first one runs, so the listener is added before it starts
+        Deployment deployment = target.deploy(false, new HashMap<>());
+        deployment.addListener((event, dep, execution) -> events.add(event));
+
+        assertSame(deployment, target.getDeployment(deployment.getId()));
+
+        deployment.getDoneFuture().get(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(Deployment.Event.STARTED, Deployment.Event.ENDED), events);
+        // Completed deployments can still be looked up by ID
+        assertSame(deployment, target.getDeployment(deployment.getId()));
+        assertNull(target.getDeployment("unknown"));
+    }
+
+    @Test
+    public void testLazyActivation() throws Exception {
+        ConfigurableApplicationContext context = mock(ConfigurableApplicationContext.class);
+        DeploymentPipeline pipeline = createDeploymentPipeline();
+        TargetActivator activator = mock(TargetActivator.class);
+        when(activator.loadApplicationContext()).thenReturn(context);
+        when(activator.createDeploymentPipeline(context)).thenReturn(pipeline);
+
+        TargetImpl lazyTarget = new TargetImpl(TEST_ENV, TEST_SITE_NAME, null, null, activator, deploymentExecutor);
+
+        assertFalse(lazyTarget.isActive());
+        assertNull(lazyTarget.getLastActivationHeapDelta());
+
+        Deployment deployment = lazyTarget.deploy(true, new HashMap<>());
+
+        assertEquals(Deployment.Status.SUCCESS, deployment.getStatus());
+        assertTrue(lazyTarget.isActive());
+        assertFalse(lazyTarget.deactivateIfIdle(60000));
+
+        // Give the serial executor time to release the finished deployment
+        Thread.sleep(500);
+
+        assertTrue(lazyTarget.deactivateIfIdle(0));
+        assertFalse(lazyTarget.isActive());
+        // The last measurement is still reported for inactive targets
+        assertNotNull(lazyTarget.getLastActivationHeapDelta());
+        verify(pipeline).destroy();
+        verify(context).close();
+
+        // The next deployment should activate the target again
+        lazyTarget.deploy(true, new HashMap<>());
+
+        assertTrue(lazyTarget.isActive());
+        verify(activator, times(2)).loadApplicationContext();
+    }
+
+    @Test
+    public void testDrainTo() throws Exception {
+        DeploymentPipeline oldPipeline = createDeploymentPipeline();
+        TargetImpl oldTarget = new TargetImpl(TEST_ENV, TEST_SITE_NAME, oldPipeline, null, null, null, deploymentExecutor);
+        TargetImpl newTarget = new TargetImpl(TEST_ENV, TEST_SITE_NAME, createDeploymentPipeline(), null, null, null,
+                                              deploymentExecutor);
+
+        Deployment dep1 = oldTarget.deploy(false, new HashMap<>());
+
+        // Wait for the first deployment to start, so that the next ones are still pending when the target is drained
+        Thread.sleep(500);
+
+        Deployment dep2 = oldTarget.deploy(false, new HashMap<>());
+        Deployment dep3 = oldTarget.deploy(false, new HashMap<>());
+
+        ExecutorService drainExecutor = Executors.newSingleThreadExecutor();
+        Deployment dep4;
+        try {
+            CompletableFuture<Void> drain = oldTarget.drainTo(newTarget, 60000, drainExecutor);
+
+            // The drain runs in the background, while the first deployment is still running
+            assertFalse(drain.isDone());
+
+            // New deployments requested to the old target should be forwarded right away to the new target, but not started
+            // before the old target has been drained
+            dep4 = oldTarget.deploy(false, new HashMap<>());
+
+            assertNotNull(newTarget.getDeployment(dep4.getId()));
+            assertNull(dep4.getStart());
+
+            drain.get(60, TimeUnit.SECONDS);
+        } finally {
+            drainExecutor.shutdownNow();
+        }
+
+        // The current deployment should have been allowed to finish, and the pending ones moved to the new target (which
+        // might have already started running them)
+        assertEquals(Deployment.Status.SUCCESS, dep1.getStatus());
+        assertNotNull(newTarget.getDeployment(dep2.getId()));
+        assertNotNull(newTarget.getDeployment(dep3.getId()));
+        verify(oldPipeline, times(1)).execute(any());
+        verify(oldPipeline).destroy();
+
+        // The moved deployments keep their place in the queue, ahead of the forwarded one
+        dep4.getDoneFuture().get(60, TimeUnit.SECONDS);
+
+        assertEquals(Deployment.Status.SUCCESS, dep2.getStatus());
+        assertEquals(Deployment.Status.SUCCESS, dep3.getStatus());
+        assertEquals(Deployment.Status.SUCCESS, dep4.getStatus());
+        assertFalse(dep4.getStart().isBefore(dep3.getEnd()));
+        assertSame(dep2, dep2.getDoneFuture().getNow(null));
+        assertEquals(4, count);
+    }
+
+    @Test
+    public void testScheduledDeploymentLimiter() throws Exception {
+        Semaphore limiter = new Semaphore(1);
+        TargetImpl otherTarget = new TargetImpl(TEST_ENV, "other", createDeploymentPipeline(), null, null, null,
+                                                deploymentExecutor);
+        TaskScheduler scheduler = mock(TaskScheduler.class);
+        ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(taskCaptor.capture(), any(Trigger.class));
+
+        target.setScheduledDeploymentLimiter(limiter);
+        target.scheduleDeployment(scheduler, mock(Trigger.class));
+        otherTarget.setScheduledDeploymentLimiter(limiter);
+        otherTarget.scheduleDeployment(scheduler, mock(Trigger.class));
+
+        Runnable task = taskCaptor.getAllValues().get(0);
+        Runnable otherTask = taskCaptor.getAllValues().get(1);
+
+        task.run();
+        // No permits left, so the scheduled deployment of the other target should be skipped
+        otherTask.run();
+
+        assertEquals(1, target.getAllDeployments().size());
+        assertTrue(otherTarget.getAllDeployments().isEmpty());
+        assertEquals(0, limiter.availablePermits());
+
+        target.getAllDeployments().iterator().next().getDoneFuture().get();
+
+        // The permit is released when the deployment is done
+        for (int i = 0; i < 10 && limiter.availablePermits() == 0; i++) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(1, limiter.availablePermits());
+
+        otherTask.run();
+
+        assertEquals(1, otherTarget.getAllDeployments().size());
+        assertEquals(0, limiter.availablePermits());
+    }
+
+    @Test
+    public void testAdaptiveScheduledDeploymentInterval() throws Exception {
+        TaskScheduler scheduler = mock(TaskScheduler.class);
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), any(Trigger.class));
+
+        target.scheduleDeployment(scheduler, new AdaptiveIntervalTrigger(1000, 4000));
+
+        assertEquals(1000L, target.getScheduledDeploymentInterval().longValue());
+
+        Deployment noChangesDeployment = new Deployment(target);
+        noChangesDeployment.start();
+        noChangesDeployment.end(Deployment.Status.SUCCESS);
+
+        target.adjustScheduledDeploymentInterval(noChangesDeployment);
+        assertEquals(2000L, target.getScheduledDeploymentInterval().longValue());
+
+        target.adjustScheduledDeploymentInterval(noChangesDeployment);
+        target.adjustScheduledDeploymentInterval(noChangesDeployment);
+        assertEquals(4000L, target.getScheduledDeploymentInterval().longValue());
+
+        // An explicit deployment should reset the interval and reschedule
+        target.deploy(true, new HashMap<>());
+
+        assertEquals(1000L, target.getScheduledDeploymentInterval().longValue());
+        verify(scheduler, times(2)).schedule(any(Runnable.class), any(Trigger.class));
+    }
+
     private DeploymentPipeline createDeploymentPipeline() {
         DeploymentPipeline pipeline = mock(DeploymentPipeline.class);
         doAnswer(invocationOnMock -> {
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+
+import org.craftercms.deployer.api.Target;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TargetRegistry}.
+ *
+ * @author avasquez
+ */
+public class TargetRegistryTest {
+
+    private TargetRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new TargetRegistry();
+    }
+
+    @Test
+    public void testAddAndRemove() throws Exception {
+        Target target = createTarget("foobar-test", "foobar-test.yaml");
+
+        registry.add(target);
+
+        assertSame(target, registry.getById("foobar-test"));
+        assertSame(target, registry.getByConfigFile(new File("foobar-test.yaml")));
+        assertEquals(1, registry.getAll().size());
+
+        assertTrue(registry.remove(target));
+        assertFalse(registry.remove(target));
+        assertNull(registry.getById("foobar-test"));
+        assertNull(registry.getByConfigFile(new File("foobar-test.yaml")));
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void testReplace() throws Exception {
+        Target oldTarget = createTarget("foobar-test", "foobar-test.yaml");
+        Target newTarget = createTarget("foobar-test", "foobar-test.yaml");
+
+        registry.add(oldTarget);
+        registry.add(newTarget);
+
+        assertSame(newTarget, registry.getById("foobar-test"));
+        assertEquals(1, registry.getAll().size());
+
+        // Removing the replaced target shouldn't affect the new one
+        assertFalse(registry.remove(oldTarget));
+        assertSame(newTarget, registry.getByConfigFile(new File("foobar-test.yaml")));
+    }
+
+    private Target createTarget(String id, String configFilename) {
+        Target target = mock(Target.class);
+        when(target.getId()).thenReturn(id);
+        when(target.getConfigurationFile()).thenReturn(new File(configFilename));
+
+        return target;
+    }
+
+}
@@ -22,14 +22,20 @@ import com.github.jknack.handlebars.springmvc.SpringTemplateLoader;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.craftercms.deployer.api.DeploymentPipeline;
 import org.craftercms.deployer.api.Target;
+import org.craftercms.deployer.api.TargetCreationRequest;
+import org.craftercms.deployer.api.TargetOperationResult;
 import org.craftercms.deployer.api.exceptions.DeployerException;
 import org.junit.After;
 import org.junit.Before;
@@ -37,11 +43,15 @@ import org.junit.Test;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.scheduling.TaskScheduler;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
@@ -56,6 +66,7 @@ public class TargetServiceImplTest {
 
     private TargetServiceImpl targetService;
     private File targetsFolder;
+    private ExecutorService targetLoadingExecutor;
 
     @Before
     public void setUp() throws Exception {
@@ -68,16 +79,27 @@ public class TargetServiceImplTest {
             new ClassPathResource("test-base-target-context.xml"),
             new ClassPathResource("test-base-target-context-override.xml"),
             "test",
+            false,
+            0,
+            60000,
+            0,
+            false,
+            0,
+            60000,
             createHandlebars(),
             new ClassPathXmlApplicationContext("test-application-context.xml"),
             createDeploymentPipelineFactory(),
             createTaskScheduler(),
+            createDeploymentExecutor(),
+            createTargetLoadingExecutor(),
+            new SyncTaskExecutor(),
             createProcessedCommitsStore());
     }
 
     @After
     public void tearDown() throws Exception {
         FileUtils.forceDelete(targetsFolder);
+        targetLoadingExecutor.shutdownNow();
     }
 
     @Test
@@ -120,9 +142,7 @@ public class TargetServiceImplTest {
 
         Target target1 = targets.get(0);
 
-        Thread.sleep(1000);
-
-        FileUtils.touch(new File(targetsFolder, "foobar-test.yaml"));
+        FileUtils.write(new File(targetsFolder, "foobar-test.yaml"), "\n# Modified\n", "UTF-8", true);
 
         targets = targetService.resolveTargets();
 
@@ -134,7 +154,7 @@ public class TargetServiceImplTest {
     }
 
     @Test
-    public void testResolveTargetsContextModified() throws Exception {
+    public void testResolveTargetsOnlyTouched() throws Exception {
         List<Target> targets = targetService.resolveTargets();
 
         assertEquals(1, targets.size());
@@ -143,6 +163,8 @@ public class TargetServiceImplTest {
 
         Thread.sleep(1000);
 
+        // A newer last modified date without changes in the content shouldn't cause a reload
+        FileUtils.touch(new File(targetsFolder, "foobar-test.yaml"));
         FileUtils.touch(new File(targetsFolder, "foobar-test-context.xml"));
 
         targets = targetService.resolveTargets();
@@ -151,9 +173,67 @@ public class TargetServiceImplTest {
 
         Target target2 = targets.get(0);
 
+        assertSame(target1, target2);
+    }
+
+    @Test
+    public void testResolveTargetsContextModified() throws Exception {
+        List<Target> targets = targetService.resolveTargets();
+
+        assertEquals(1, targets.size());
+
+        Target target1 = targets.get(0);
+
+        FileUtils.write(new File(targetsFolder, "foobar-test-context.xml"), "\n<!-- Modified -->\n", "UTF-8", true);
+
+        targets = targetService.resolveTargets();
+
+        assertEquals(1, targets.size());
+
+        Target target2 = targets.get(0);
+
         assertNotEquals(target1.getLoadDate(), target2.getLoadDate());
     }
 
+    @Test
+    public void testResolveTargetsWithInvalidConfig() throws Exception {
+        // Missing the required env and site name properties
+        FileUtils.write(new File(targetsFolder, "invalid-test.yaml"), "target:\n  foo: bar\n", "UTF-8");
+
+        List<Target> targets = targetService.resolveTargets();
+
+        assertEquals(1, targets.size());
+        assertEquals("foobar-test", targets.get(0).getId());
+    }
+
+    @Test
+    public void testResolveTargetsForChangedFiles() throws Exception {
+        List<Target> targets = targetService.resolveTargets();
+
+        assertEquals(1, targets.size());
+
+        Target target1 = targets.get(0);
+
+        File contextFile = new File(targetsFolder, "foobar-test-context.xml");
+        FileUtils.write(contextFile, "\n<!-- Modified -->\n", "UTF-8", true);
+
+        targets = targetService.resolveTargets(Arrays.asList(contextFile, new File(targetsFolder, "foobar.txt")));
+
+        assertEquals(1, targets.size());
+
+        Target target2 = targets.get(0);
+
+        assertNotEquals(target1.getLoadDate(), target2.getLoadDate());
+
+        File configFile = new File(targetsFolder, "foobar-test.yaml");
+        FileUtils.forceDelete(configFile);
+
+        targets = targetService.resolveTargets(Collections.singletonList(configFile));
+
+        assertEquals(0, targets.size());
+        assertEquals(0, targetService.getAllTargets().size());
+    }
+
     @Test
     public void testGetTarget() throws Exception {
         List<Target> targets = targetService.resolveTargets();
@@ -194,6 +274,27 @@ public class TargetServiceImplTest {
         assertEquals(randomParam, target.getConfiguration().getString("target.randomParam"));
     }
 
+    @Test
+    public void testCreateTargets() throws Exception {
+        Map<String, Object> params = Collections.singletonMap("random_param", RandomStringUtils.randomAlphanumeric(8));
+        List<TargetCreationRequest> requests = Arrays.asList(
+            new TargetCreationRequest("test", "site1", false, "test", params),
+            // Already exists
+            new TargetCreationRequest("test", "foobar", false, "test", params),
+            new TargetCreationRequest("test", "site2", false, "test", params));
+
+        List<TargetOperationResult> results = targetService.createTargets(requests);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("foobar", results.get(1).getSiteName());
+        assertNotNull(results.get(1).getError());
+        assertTrue(results.get(2).isSuccess());
+        assertNotNull(targetService.getTarget("test", "site1"));
+        assertNotNull(targetService.getTarget("test", "site2"));
+    }
+
     @Test
     public void testDeleteTarget() throws Exception {
         List<Target> targets = targetService.resolveTargets();
@@ -227,6 +328,16 @@ public class TargetServiceImplTest {
         return mock(TaskScheduler.class);
     }
 
+    private Executor createDeploymentExecutor() {
+        return mock(Executor.class);
+    }
+
+    private Executor createTargetLoadingExecutor() {
+        targetLoadingExecutor = Executors.newFixedThreadPool(2);
+
+        return targetLoadingExecutor;
+    }
+
     private ProcessedCommitsStore createProcessedCommitsStore() {
         return mock(ProcessedCommitsStore.class);
     }
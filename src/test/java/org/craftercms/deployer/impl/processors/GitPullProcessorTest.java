@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl.processors;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.apache.commons.configuration2.BaseHierarchicalConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.ProcessorExecution;
+import org.craftercms.deployer.api.Target;
+import org.craftercms.deployer.api.exceptions.DeployerConfigurationException;
+import org.craftercms.deployer.impl.ProcessedCommitsStore;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.craftercms.deployer.impl.processors.GitPullProcessor.REMOTE_REPO_BRANCH_CONFIG_KEY;
+import static org.craftercms.deployer.impl.processors.GitPullProcessor.REMOTE_REPO_URL_CONFIG_KEY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link GitPullProcessor}.
+ *
+ * @author avasquez
+ */
+public class GitPullProcessorTest {
+
+    private File tempFolder;
+    private File remoteRepoFolder;
+    private File localRepoFolder;
+    private BaseHierarchicalConfiguration config;
+    private GitPullProcessor processor;
+
+    @Before
+    public void setUp() throws Exception {
+        tempFolder = Files.createTempDirectory("git-pull-processor-test").toFile();
+        remoteRepoFolder = new File(tempFolder, "remote");
+        localRepoFolder = new File(tempFolder, "local");
+
+        try (Git git = Git.init().setDirectory(remoteRepoFolder).call()) {
+            commitFile(git, "index.xml", "<page>1</page>", "Initial commit");
+        }
+
+        config = new BaseHierarchicalConfiguration();
+        config.setProperty(REMOTE_REPO_URL_CONFIG_KEY, remoteRepoFolder.toURI().toString());
+        config.setProperty(REMOTE_REPO_BRANCH_CONFIG_KEY, "master");
+
+        processor = new GitPullProcessor();
+        processor.setBeanName("gitPullProcessor");
+        processor.setTargetId("test-target");
+        processor.setLocalRepoFolder(localRepoFolder);
+        processor.init(config);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.forceDelete(tempFolder);
+    }
+
+    @Test
+    public void testMirrorPull() throws Exception {
+        processor.setMirror(true);
+        processor.init(config);
+
+        execute();
+
+        // Rewrite the remote history, and change a file locally, which a merge can't deal with
+        RevCommit newCommit;
+        try (Git git = Git.open(remoteRepoFolder)) {
+            FileUtils.write(new File(remoteRepoFolder, "index.xml"), "<page>2</page>", "UTF-8");
+
+            git.add().addFilepattern(".").call();
+            newCommit = git.commit().setAmend(true).setMessage("Amended commit").call();
+        }
+
+        FileUtils.write(new File(localRepoFolder, "index.xml"), "<page>local</page>", "UTF-8");
+
+        ProcessorExecution execution = execute();
+
+        assertEquals(Deployment.Status.SUCCESS, execution.getStatus());
+        assertTrue(execution.getStatusDetails().toString().contains("mirror reset to commit " + newCommit.name()));
+        assertEquals("<page>2</page>", FileUtils.readFileToString(new File(localRepoFolder, "index.xml"), "UTF-8"));
+
+        try (Git git = Git.open(localRepoFolder)) {
+            assertEquals(newCommit, git.getRepository().resolve(Constants.HEAD));
+        }
+
+        execution = execute();
+
+        assertTrue(execution.getStatusDetails().toString().contains("up to date"));
+    }
+
+    @Test(expected = DeployerConfigurationException.class)
+    public void testMirrorWithoutBranch() throws Exception {
+        config.clearProperty(REMOTE_REPO_BRANCH_CONFIG_KEY);
+
+        processor.setMirror(true);
+        processor.init(config);
+    }
+
+    @Test
+    public void testProbeRemoteWhenUpToDate() throws Exception {
+        ProcessedCommitsStore processedCommitsStore = mock(ProcessedCommitsStore.class);
+
+        processor.setProbeRemote(true);
+        processor.setProcessedCommitsStore(processedCommitsStore);
+
+        execute();
+
+        try (Git git = Git.open(localRepoFolder)) {
+            when(processedCommitsStore.load("test-target")).thenReturn(git.getRepository().resolve(Constants.HEAD));
+        }
+
+        processor = spy(processor);
+
+        Deployment deployment = executeDeployment();
+
+        // Nothing new in the remote repo and the current commit was already processed, so the deployment is ended right away
+        verify(processor, never()).doPull(any(ProcessorExecution.class));
+        assertFalse(deployment.isRunning());
+        assertTrue(deployment.isNoOp());
+        assertEquals(Deployment.Status.SUCCESS, deployment.getStatus());
+    }
+
+    @Test
+    public void testProbeRemoteWithNewCommit() throws Exception {
+        ProcessedCommitsStore processedCommitsStore = mock(ProcessedCommitsStore.class);
+
+        processor.setProbeRemote(true);
+        processor.setProcessedCommitsStore(processedCommitsStore);
+
+        execute();
+
+        try (Git git = Git.open(localRepoFolder)) {
+            when(processedCommitsStore.load("test-target")).thenReturn(git.getRepository().resolve(Constants.HEAD));
+        }
+
+        RevCommit newCommit;
+        try (Git git = Git.open(remoteRepoFolder)) {
+            newCommit = commitFile(git, "index.xml", "<page>2</page>", "Second commit");
+        }
+
+        processor = spy(processor);
+
+        Deployment deployment = executeDeployment();
+
+        // The remote branch moved, so the processor falls through to a normal pull and the deployment goes on
+        verify(processor).doPull(any(ProcessorExecution.class));
+        assertTrue(deployment.isRunning());
+        assertFalse(deployment.isNoOp());
+
+        try (Git git = Git.open(localRepoFolder)) {
+            assertEquals(newCommit, git.getRepository().resolve(Constants.HEAD));
+        }
+    }
+
+    private ProcessorExecution execute() {
+        return executeDeployment().getProcessorExecutions().get(0);
+    }
+
+    private Deployment executeDeployment() {
+        Deployment deployment = new Deployment(mock(Target.class));
+        deployment.start();
+
+        processor.execute(deployment);
+
+        return deployment;
+    }
+
+    private RevCommit commitFile(Git git, String path, String content, String message) throws Exception {
+        FileUtils.write(new File(git.getRepository().getWorkTree(), path), content, "UTF-8");
+
+        git.add().addFilepattern(".").call();
+
+        return git.commit().setMessage(message).call();
+    }
+
+}
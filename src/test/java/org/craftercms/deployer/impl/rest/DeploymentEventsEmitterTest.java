@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl.rest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.craftercms.deployer.api.Deployment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DeploymentEventsEmitter}.
+ *
+ * @author avasquez
+ */
+public class DeploymentEventsEmitterTest {
+
+    private ExecutorService executor;
+    private Deployment deployment;
+    private CompletableFuture<Deployment> doneFuture;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+        doneFuture = new CompletableFuture<>();
+
+        deployment = mock(Deployment.class);
+        when(deployment.getId()).thenReturn("test");
+        when(deployment.getDoneFuture()).thenReturn(doneFuture);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSendEvents() throws Exception {
+        TestEmitter emitter = new TestEmitter(deployment, executor, new CountDownLatch(0), 10);
+        emitter.start();
+
+        emitter.onDeploymentEvent(Deployment.Event.STARTED, deployment, null);
+        emitter.onDeploymentEvent(Deployment.Event.ENDED, deployment, null);
+        doneFuture.complete(deployment);
+
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("deployment", "started", "ended", "done"), emitter.sentEvents);
+        verify(deployment).removeListener(emitter);
+    }
+
+    @Test
+    public void testSlowClient() throws Exception {
+        CountDownLatch clientReady = new CountDownLatch(1);
+        TestEmitter emitter = new TestEmitter(deployment, executor, clientReady, 10);
+        emitter.start();
+
+        long start = System.currentTimeMillis();
+
+        // The client is stalled, but the deployment thread shouldn't wait for it
+        for (int i = 0; i < 100; i++) {
+            emitter.onDeploymentEvent(Deployment.Event.PROCESSOR_STARTED, deployment, null);
+        }
+
+        assertTrue(System.currentTimeMillis() - start < 1000);
+
+        // The queue filled up, so the stream should be closed
+        verify(deployment).removeListener(emitter);
+
+        clientReady.countDown();
+
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(emitter.sentEvents.size() <= 12);
+    }
+
+    private static class TestEmitter extends DeploymentEventsEmitter {
+
+        private final CountDownLatch clientReady;
+        private final List<String> sentEvents;
+        private final CountDownLatch completed;
+
+        public TestEmitter(Deployment deployment, Executor executor, CountDownLatch clientReady, int queueCapacity) {
+            super(deployment, 60000, executor, queueCapacity);
+
+            this.clientReady = clientReady;
+            this.sentEvents = new CopyOnWriteArrayList<>();
+            this.completed = new CountDownLatch(1);
+        }
+
+        @Override
+        protected void writeEvent(PendingEvent event) {
+            try {
+                clientReady.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            sentEvents.add(event.name);
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+    }
+
+}
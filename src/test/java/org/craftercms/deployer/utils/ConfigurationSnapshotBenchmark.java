@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.configuration2.BaseHierarchicalConfiguration;
+import org.apache.commons.configuration2.CombinedConfiguration;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.configuration2.tree.OverrideCombiner;
+import org.craftercms.commons.spring.ApacheCommonsConfiguration2PropertySource;
+import org.springframework.core.env.PropertySource;
+
+/**
+ * Microbenchmark that compares the cost of looking up target properties, through {@link ConfigUtils} and through the Spring
+ * property source, in a combined configuration (like the effective configuration of a target, made of the target, base and
+ * base override configurations) and in a {@link ConfigurationSnapshot} of it, both at the root and in the processor
+ * sub-configurations of the pipeline. It's not run as part of the tests: run its main method with the test classpath.
+ *
+ * @author avasquez
+ */
+public class ConfigurationSnapshotBenchmark {
+
+    private static final int PROPERTIES_PER_CONFIG = 100;
+    private static final int PROCESSORS = 5;
+    private static final int PROPERTIES_PER_PROCESSOR = 10;
+    private static final String PIPELINE_KEY = "target.deployment.pipeline";
+    private static final int WARMUP_ITERATIONS = 200000;
+    private static final int ITERATIONS = 1000000;
+
+    public static void main(String... args) throws Exception {
+        CombinedConfiguration config = createConfiguration();
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(config);
+        List<String> keys = new ArrayList<>();
+
+        for (int i = 0; i < PROPERTIES_PER_CONFIG; i++) {
+            keys.add("target.section" + (i % 10) + ".property" + i);
+        }
+
+        System.out.println("Lookup cost (ns/op) with " + keys.size() + " keys:");
+
+        report("ConfigUtils, combined config", benchmarkConfigUtils(config, keys));
+        report("ConfigUtils, snapshot", benchmarkConfigUtils(snapshot, keys));
+        report("Property source, combined config", benchmarkPropertySource(config, keys));
+        report("Property source, snapshot", benchmarkPropertySource(snapshot, keys));
+
+        List<String> processorKeys = new ArrayList<>();
+
+        for (int i = 0; i < PROPERTIES_PER_PROCESSOR; i++) {
+            processorKeys.add("settings.property" + i);
+        }
+
+        System.out.println("Processor sub-configuration lookup cost (ns/op) with " + processorKeys.size() + " keys:");
+
+        report("ConfigUtils, combined config", benchmarkProcessorConfigs(config, processorKeys));
+        report("ConfigUtils, snapshot", benchmarkProcessorConfigs(snapshot, processorKeys));
+    }
+
+    private static double benchmarkProcessorConfigs(HierarchicalConfiguration config, List<String> keys) throws Exception {
+        // Like the pipeline factory, which passes each processor its own sub-configuration
+        List<HierarchicalConfiguration> processorConfigs = ConfigUtils.getConfigurationsAt(config, PIPELINE_KEY);
+        long blackhole = 0;
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            HierarchicalConfiguration processorConfig = processorConfigs.get(i % processorConfigs.size());
+            blackhole += ConfigUtils.getStringProperty(processorConfig, keys.get(i % keys.size())).length();
+        }
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            HierarchicalConfiguration processorConfig = processorConfigs.get(i % processorConfigs.size());
+            blackhole += ConfigUtils.getStringProperty(processorConfig, keys.get(i % keys.size())).length();
+        }
+
+        return result(start, blackhole);
+    }
+
+    private static double benchmarkConfigUtils(Configuration config, List<String> keys) throws Exception {
+        long blackhole = 0;
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            blackhole += ConfigUtils.getStringProperty(config, keys.get(i % keys.size())).length();
+        }
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            blackhole += ConfigUtils.getStringProperty(config, keys.get(i % keys.size())).length();
+        }
+
+        return result(start, blackhole);
+    }
+
+    private static double benchmarkPropertySource(Configuration config, List<String> keys) {
+        PropertySource<?> propertySource = new ApacheCommonsConfiguration2PropertySource("targetConfig", config);
+        long blackhole = 0;
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            blackhole += propertySource.getProperty(keys.get(i % keys.size())).hashCode();
+        }
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            blackhole += propertySource.getProperty(keys.get(i % keys.size())).hashCode();
+        }
+
+        return result(start, blackhole);
+    }
+
+    private static double result(long start, long blackhole) {
+        double nanosPerOp = (double)(System.nanoTime() - start) / ITERATIONS;
+
+        // Use the result so that the JIT can't remove the lookups
+        if (blackhole == 42) {
+            System.out.println();
+        }
+
+        return nanosPerOp;
+    }
+
+    private static void report(String name, double nanosPerOp) {
+        System.out.println(String.format("  %-35s %10.1f", name, nanosPerOp));
+    }
+
+    private static CombinedConfiguration createConfiguration() {
+        CombinedConfiguration config = new CombinedConfiguration(new OverrideCombiner());
+
+        // Target, base override and base configurations, each one defining (or overriding) the same properties
+        for (String name : new String[] { "target", "baseOverride", "base" }) {
+            BaseHierarchicalConfiguration child = new BaseHierarchicalConfiguration();
+
+            for (int i = 0; i < PROPERTIES_PER_CONFIG; i++) {
+                child.addProperty("target.section" + (i % 10) + ".property" + i, name + i);
+            }
+
+            // Only the target configuration defines the pipeline
+            if (name.equals("target")) {
+                for (int p = 0; p < PROCESSORS; p++) {
+                    child.addProperty(PIPELINE_KEY + "(-1).processorName", "processor" + p);
+
+                    for (int i = 0; i < PROPERTIES_PER_PROCESSOR; i++) {
+                        child.addProperty(PIPELINE_KEY + ".settings.property" + i, "processor" + p + "-" + i);
+                    }
+                }
+            }
+
+            config.addConfiguration(child);
+        }
+
+        return config;
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.configuration2.BaseHierarchicalConfiguration;
+import org.apache.commons.configuration2.CombinedConfiguration;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+import org.apache.commons.configuration2.tree.OverrideCombiner;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link ConfigurationSnapshot}.
+ *
+ * @author avasquez
+ */
+public class ConfigurationSnapshotTest {
+
+    private CombinedConfiguration config;
+
+    @Before
+    public void setUp() throws Exception {
+        config = createConfiguration();
+    }
+
+    @Test
+    public void testGetProperty() throws Exception {
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(config);
+
+        assertEquals("override", snapshot.getString("target.foo"));
+        assertEquals("base", snapshot.getString("target.bar"));
+        assertArrayEquals(new String[] { "a", "b" }, snapshot.getStringArray("target.list"));
+        assertEquals("b", snapshot.getString("target.list(1)"));
+        assertNull(snapshot.getString("target.missing"));
+        assertTrue(snapshot.containsKey("target.bar"));
+        assertFalse(snapshot.containsKey("target.missing"));
+        assertEquals(1, snapshot.configurationsAt("target").size());
+        assertEquals(config.size(), snapshot.size());
+    }
+
+    @Test
+    public void testSubConfigurations() throws Exception {
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(config);
+
+        HierarchicalConfiguration<ImmutableNode> subConfig = snapshot.configurationAt("target");
+
+        assertTrue(subConfig instanceof ConfigurationSnapshot);
+        assertEquals("override", subConfig.getString("foo"));
+
+        List<HierarchicalConfiguration<ImmutableNode>> subConfigs = snapshot.configurationsAt("target");
+
+        assertEquals(1, subConfigs.size());
+        assertTrue(subConfigs.get(0) instanceof ConfigurationSnapshot);
+        assertEquals("base", subConfigs.get(0).getString("bar"));
+        assertTrue(snapshot.childConfigurationsAt("target").stream().allMatch(c -> c instanceof ConfigurationSnapshot));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutableSubConfiguration() throws Exception {
+        new ConfigurationSnapshot(config).configurationAt("target", true).setProperty("foo", "bar");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() throws Exception {
+        new ConfigurationSnapshot(config).setProperty("target.foo", "bar");
+    }
+
+    static CombinedConfiguration createConfiguration() {
+        BaseHierarchicalConfiguration override = new BaseHierarchicalConfiguration();
+        override.addProperty("target.foo", "override");
+
+        BaseHierarchicalConfiguration base = new BaseHierarchicalConfiguration();
+        base.addProperty("target.foo", "base");
+        base.addProperty("target.bar", "base");
+        base.addProperty("target.list", Arrays.asList("a", "b"));
+
+        CombinedConfiguration config = new CombinedConfiguration(new OverrideCombiner());
+        config.addConfiguration(override);
+        config.addConfiguration(base);
+
+        return config;
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.transport.TagOpt;
+
+/**
+ * Benchmark that compares the cost of fetching from a local file:// repository with many branches and tags, using the default
+ * refspec (all branches) and using a refspec narrowed to the deployed branch. Each iteration adds a commit to every branch of
+ * the remote repository, like a busy authoring repository with lots of sandbox branches. It's not run as part of the tests: run
+ * its main method with the test classpath.
+ *
+ * @author avasquez
+ */
+public class GitFetchBenchmark {
+
+    private static final int BRANCHES = 200;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 10;
+
+    public static void main(String... args) throws Exception {
+        File tempFolder = Files.createTempDirectory("git-fetch-benchmark").toFile();
+        try {
+            File remoteRepoFolder = new File(tempFolder, "remote");
+            String remoteRepoUrl = remoteRepoFolder.toURI().toString();
+
+            try (Git remoteGit = createRemoteRepository(remoteRepoFolder);
+                 Git allBranchesGit = GitUtils.cloneRemoteRepository(remoteRepoUrl, "master", false, null,
+                                                                     new File(tempFolder, "all"), null, null, null, null);
+                 Git singleBranchGit = GitUtils.cloneRemoteRepository(remoteRepoUrl, "master", false, null,
+                                                                      new File(tempFolder, "single"), null, null, null, null)) {
+                System.out.println("Fetch cost (ms/op) with " + BRANCHES + " branches:");
+
+                for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                    commitToAllBranches(remoteGit, "warmup" + i);
+
+                    GitUtils.fetch(allBranchesGit, null, null);
+                    GitUtils.fetch(singleBranchGit, null, "master", TagOpt.NO_TAGS, null);
+                }
+
+                long allBranchesNanos = 0;
+                long singleBranchNanos = 0;
+
+                for (int i = 0; i < ITERATIONS; i++) {
+                    commitToAllBranches(remoteGit, "iteration" + i);
+
+                    long start = System.nanoTime();
+                    GitUtils.fetch(allBranchesGit, null, null);
+                    allBranchesNanos += System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    GitUtils.fetch(singleBranchGit, null, "master", TagOpt.NO_TAGS, null);
+                    singleBranchNanos += System.nanoTime() - start;
+                }
+
+                report("Default refspec", allBranchesNanos);
+                report("Deployed branch only", singleBranchNanos);
+            }
+        } finally {
+            FileUtils.deleteQuietly(tempFolder);
+        }
+    }
+
+    private static Git createRemoteRepository(File folder) throws Exception {
+        Git git = Git.init().setDirectory(folder).call();
+
+        FileUtils.write(new File(folder, "index.xml"), "<page/>", "UTF-8");
+
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Initial commit").call();
+
+        for (int i = 0; i < BRANCHES; i++) {
+            git.branchCreate().setName("sandbox" + i).call();
+            git.tag().setName("tag" + i).call();
+        }
+
+        return git;
+    }
+
+    private static void commitToAllBranches(Git git, String content) throws Exception {
+        for (int i = -1; i < BRANCHES; i++) {
+            String branch = i < 0? "master": "sandbox" + i;
+
+            git.checkout().setName(branch).call();
+
+            FileUtils.write(new File(git.getRepository().getWorkTree(), "index.xml"), "<page>" + content + branch + "</page>",
+                            "UTF-8");
+
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("Update " + branch).call();
+        }
+    }
+
+    private static void report(String name, long nanos) {
+        System.out.println(String.format("  %-25s %10.1f", name, nanos / 1000000.0 / ITERATIONS));
+    }
+
+}
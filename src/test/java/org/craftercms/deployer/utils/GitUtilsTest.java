@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.transport.TagOpt;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link GitUtils}.
+ *
+ * @author avasquez
+ */
+public class GitUtilsTest {
+
+    private File tempFolder;
+    private File remoteRepoFolder;
+
+    @Before
+    public void setUp() throws Exception {
+        tempFolder = Files.createTempDirectory("git-utils-test").toFile();
+        remoteRepoFolder = new File(tempFolder, "remote");
+
+        try (Git git = Git.init().setDirectory(remoteRepoFolder).call()) {
+            FileUtils.write(new File(remoteRepoFolder, "index.xml"), "<page/>", "UTF-8");
+
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("Initial commit").call();
+            git.branchCreate().setName("sandbox").call();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.forceDelete(tempFolder);
+    }
+
+    @Test
+    public void testCloneSingleBranch() throws Exception {
+        File localRepoFolder = new File(tempFolder, "local");
+        String remoteRepoUrl = remoteRepoFolder.toURI().toString();
+
+        try (Git git = GitUtils.cloneRemoteRepository(remoteRepoUrl, "master", true, null, localRepoFolder, null, null, null,
+                                                      null)) {
+            Repository repo = git.getRepository();
+
+            assertNotNull(repo.exactRef(Constants.R_REMOTES + "origin/master"));
+            assertNull(repo.exactRef(Constants.R_REMOTES + "origin/sandbox"));
+            assertArrayEquals(new String[] { "+refs/heads/master:refs/remotes/origin/master" },
+                              repo.getConfig().getStringList("remote", "origin", "fetch"));
+        }
+    }
+
+    @Test
+    public void testFetchBranch() throws Exception {
+        File localRepoFolder = new File(tempFolder, "local");
+        String remoteRepoUrl = remoteRepoFolder.toURI().toString();
+
+        try (Git git = GitUtils.cloneRemoteRepository(remoteRepoUrl, "master", false, null, localRepoFolder, null, null, null,
+                                                      null)) {
+            Repository repo = git.getRepository();
+            ObjectId sandboxId = repo.exactRef(Constants.R_REMOTES + "origin/sandbox").getObjectId();
+            RevCommit masterCommit;
+            RevCommit sandboxCommit;
+
+            try (Git remoteGit = Git.open(remoteRepoFolder)) {
+                masterCommit = remoteGit.commit().setMessage("Master commit").call();
+                remoteGit.tag().setName("release").call();
+
+                remoteGit.checkout().setName("sandbox").call();
+                sandboxCommit = remoteGit.commit().setMessage("Sandbox commit").call();
+            }
+
+            GitUtils.fetch(git, null, "master", TagOpt.NO_TAGS, null);
+
+            assertEquals(masterCommit, repo.exactRef(Constants.R_REMOTES + "origin/master").getObjectId());
+            assertEquals(masterCommit, repo.resolve(Constants.FETCH_HEAD));
+            assertEquals(sandboxId, repo.exactRef(Constants.R_REMOTES + "origin/sandbox").getObjectId());
+            assertNull(repo.exactRef(Constants.R_TAGS + "release"));
+            assertFalse(repo.hasObject(sandboxCommit));
+        }
+    }
+
+    @Test
+    public void testGetRemoteBranchTip() throws Exception {
+        String remoteRepoUrl = remoteRepoFolder.toURI().toString();
+
+        try (Git remoteGit = Git.open(remoteRepoFolder)) {
+            ObjectId masterId = remoteGit.getRepository().resolve("master");
+
+            assertEquals(masterId, GitUtils.getRemoteBranchTip(remoteRepoUrl, "master", null));
+            assertEquals(masterId, GitUtils.getRemoteBranchTip(remoteRepoUrl, "refs/heads/master", null));
+            assertNull(GitUtils.getRemoteBranchTip(remoteRepoUrl, "live", null));
+        }
+    }
+
+    @Test
+    public void testCloneAllBranches() throws Exception {
+        File localRepoFolder = new File(tempFolder, "local");
+        String remoteRepoUrl = remoteRepoFolder.toURI().toString();
+
+        try (Git git = GitUtils.cloneRemoteRepository(remoteRepoUrl, "master", false, null, localRepoFolder, null, null, null,
+                                                      null)) {
+            Repository repo = git.getRepository();
+
+            assertNotNull(repo.exactRef(Constants.R_REMOTES + "origin/master"));
+            assertNotNull(repo.exactRef(Constants.R_REMOTES + "origin/sandbox"));
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.scheduling;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link StaggeredCronTrigger}.
+ *
+ * @author avasquez
+ */
+public class StaggeredCronTriggerTest {
+
+    private static final String IRREGULAR_CRON = "0 0,5 * * * *";
+
+    @Test
+    public void testGetMinInterval() throws Exception {
+        assertEquals(TimeUnit.MINUTES.toMillis(1), StaggeredCronTrigger.getMinInterval("0 * * * * *"));
+        assertEquals(TimeUnit.MINUTES.toMillis(5), StaggeredCronTrigger.getMinInterval(IRREGULAR_CRON));
+        assertEquals(TimeUnit.DAYS.toMillis(1), StaggeredCronTrigger.getMinInterval("0 0 0 * * MON-FRI"));
+        assertEquals(TimeUnit.DAYS.toMillis(31), StaggeredCronTrigger.getMinInterval("0 0 0 31 * *"));
+    }
+
+    @Test
+    public void testOffset() throws Exception {
+        long minInterval = TimeUnit.MINUTES.toMillis(5);
+
+        for (int i = 0; i < 1000; i++) {
+            String key = "site" + i + "-test";
+            long offset = new StaggeredCronTrigger(IRREGULAR_CRON, key).getOffset();
+
+            assertTrue(offset >= 0 && offset < minInterval);
+            // The offset only depends on the key
+            assertEquals(offset, new StaggeredCronTrigger(IRREGULAR_CRON, key).getOffset());
+        }
+    }
+
+    @Test
+    public void testNextExecutionTime() throws Exception {
+        StaggeredCronTrigger trigger = new StaggeredCronTrigger(IRREGULAR_CRON, "mysite-test");
+        CronSequenceGenerator sequenceGenerator = new CronSequenceGenerator(IRREGULAR_CRON);
+        long offset = trigger.getOffset();
+        Date lastCompletionTime = new Date();
+
+        for (int i = 0; i < 30; i++) {
+            Date next = trigger.nextExecutionTime(new SimpleTriggerContext(null, null, lastCompletionTime));
+            Date expected = new Date(sequenceGenerator.next(new Date(lastCompletionTime.getTime() - offset)).getTime() + offset);
+
+            assertEquals(expected, next);
+            assertTrue(next.after(lastCompletionTime));
+
+            lastCompletionTime = next;
+        }
+    }
+
+}